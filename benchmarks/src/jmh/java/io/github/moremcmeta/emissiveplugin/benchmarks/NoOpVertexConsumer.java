@@ -0,0 +1,80 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.benchmarks;
+
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import net.minecraft.MethodsReturnNonnullByDefault;
+
+/**
+ * Discards all vertices except for counting them, so that benchmarks only measure the buffers that wrap it.
+ * @author soir20
+ */
+@MethodsReturnNonnullByDefault
+public final class NoOpVertexConsumer implements VertexConsumer {
+    private long vertexCount;
+
+    /**
+     * Gets the number of vertices that have been ended.
+     * @return number of vertices
+     */
+    public long vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public VertexConsumer vertex(double x, double y, double z) {
+        return this;
+    }
+
+    @Override
+    public VertexConsumer color(int red, int green, int blue, int alpha) {
+        return this;
+    }
+
+    @Override
+    public VertexConsumer uv(float u, float v) {
+        return this;
+    }
+
+    @Override
+    public VertexConsumer overlayCoords(int u, int v) {
+        return this;
+    }
+
+    @Override
+    public VertexConsumer uv2(int u, int v) {
+        return this;
+    }
+
+    @Override
+    public VertexConsumer normal(float x, float y, float z) {
+        return this;
+    }
+
+    @Override
+    public void endVertex() {
+        vertexCount++;
+    }
+
+    @Override
+    public void defaultColor(int red, int green, int blue, int alpha) {}
+
+    @Override
+    public void unsetDefaultColor() {}
+
+}
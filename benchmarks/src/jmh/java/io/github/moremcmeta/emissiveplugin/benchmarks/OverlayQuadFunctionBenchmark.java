@@ -0,0 +1,109 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.benchmarks;
+
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteIndex;
+import io.github.moremcmeta.emissiveplugin.model.OverlayBakedQuad;
+import io.github.moremcmeta.emissiveplugin.model.OverlayQuadFunction;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.core.Direction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating overlay quads for the quads of one face of a model, as the platform models do for every
+ * face they render. Models either have overlays on every quad or on none of them.
+ * @author soir20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OverlayQuadFunctionBenchmark {
+    private static final int SPRITE_COUNT = 4096;
+
+    @Param({"1", "6", "24"})
+    public int quadCount;
+
+    private SyntheticAtlas atlas;
+    private OverlayQuadFunction quadFunction;
+    private List<BakedQuad> quadsWithOverlays;
+    private List<BakedQuad> quadsWithoutOverlays;
+
+    @Setup
+    public void setup() {
+        atlas = new SyntheticAtlas(SPRITE_COUNT, 0);
+        OverlaySpriteIndex overlayIndex = OverlaySpriteIndex.of(atlas.overlays());
+        quadFunction = new OverlayQuadFunction(OverlayBakedQuad::new, () -> overlayIndex);
+        quadsWithOverlays = makeQuads(atlas.baseSprites(), quadCount);
+        quadsWithoutOverlays = makeQuads(atlas.plainSprites(), quadCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        atlas.close();
+    }
+
+    @Benchmark
+    public List<OverlayBakedQuad> applyWithOverlays() {
+        return quadFunction.apply(quadsWithOverlays);
+    }
+
+    @Benchmark
+    public List<OverlayBakedQuad> applyWithoutOverlays() {
+        return quadFunction.apply(quadsWithoutOverlays);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<OverlayBakedQuad> applyWithOverlaysConcurrent() {
+        return quadFunction.apply(quadsWithOverlays);
+    }
+
+    /**
+     * Creates quads that use different sprites and face every direction.
+     * @param sprites       sprites to choose from
+     * @param count         number of quads
+     * @return new quads
+     */
+    private static List<BakedQuad> makeQuads(List<TextureAtlasSprite> sprites, int count) {
+        Direction[] directions = Direction.values();
+        List<BakedQuad> quads = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            quads.add(SyntheticAtlas.makeQuad(
+                    sprites.get(index * 31 % sprites.size()),
+                    directions[index % directions.length]
+            ));
+        }
+
+        return quads;
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.benchmarks;
+
+import io.github.moremcmeta.emissiveplugin.fabricapi.SpriteFinder;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteIndex;
+import io.github.moremcmeta.emissiveplugin.render.OverlayVertexConsumer;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing entity-style quads through an {@link OverlayVertexConsumer} into a buffer that discards
+ * them. Half of the quads use sprites with overlays, so half of them are written to the delegate a second time.
+ * @author soir20
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OverlayVertexConsumerBenchmark {
+    private static final int SPRITE_COUNT = 4096;
+    private static final int QUADS = 256;
+    private static final int VERTS_PER_QUAD = 4;
+    private static final float[][] CORNERS = {{0, 0}, {0, 1}, {1, 1}, {1, 0}};
+
+    @Benchmark
+    @OperationsPerInvocation(QUADS)
+    public long writeQuads(AtlasState atlasState, BufferState bufferState) {
+        return writeAll(atlasState, bufferState);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(QUADS)
+    public long writeQuadsConcurrent(AtlasState atlasState, BufferState bufferState) {
+        return writeAll(atlasState, bufferState);
+    }
+
+    /**
+     * Writes all quads to the overlay buffer.
+     * @param atlasState        shared atlas and quad coordinates
+     * @param bufferState       buffers for the current thread
+     * @return number of vertices written to the delegate so far
+     */
+    private static long writeAll(AtlasState atlasState, BufferState bufferState) {
+        OverlayVertexConsumer buffer = bufferState.buffer;
+        float[] texU = atlasState.texU;
+        float[] texV = atlasState.texV;
+
+        for (int quad = 0; quad < QUADS; quad++) {
+            for (int vertex = 0; vertex < VERTS_PER_QUAD; vertex++) {
+                int index = quad * VERTS_PER_QUAD + vertex;
+                buffer.vertex(CORNERS[vertex][0], CORNERS[vertex][1], 0)
+                        .color(255, 255, 255, 255)
+                        .uv(texU[index], texV[index])
+                        .overlayCoords(0, 10)
+                        .uv2(240, 240)
+                        .normal(0, 0, 1)
+                        .endVertex();
+            }
+        }
+
+        return bufferState.delegate.vertexCount();
+    }
+
+    /**
+     * Atlas and quad coordinates shared by all threads.
+     * @author soir20
+     */
+    @State(Scope.Benchmark)
+    public static class AtlasState {
+        private SyntheticAtlas atlas;
+        private SpriteFinder spriteFinder;
+        private OverlaySpriteIndex overlayIndex;
+        private float[] texU;
+        private float[] texV;
+
+        @Setup
+        public void setup() {
+            atlas = new SyntheticAtlas(SPRITE_COUNT, 0);
+            spriteFinder = new SpriteFinder(atlas.sprites());
+            overlayIndex = OverlaySpriteIndex.of(atlas.overlays());
+
+            List<TextureAtlasSprite> baseSprites = atlas.baseSprites();
+            List<TextureAtlasSprite> plainSprites = atlas.plainSprites();
+            texU = new float[QUADS * VERTS_PER_QUAD];
+            texV = new float[QUADS * VERTS_PER_QUAD];
+            for (int quad = 0; quad < QUADS; quad++) {
+                List<TextureAtlasSprite> sprites = quad % 2 == 0 ? baseSprites : plainSprites;
+                TextureAtlasSprite sprite = sprites.get(quad * 31 % sprites.size());
+
+                for (int vertex = 0; vertex < VERTS_PER_QUAD; vertex++) {
+                    texU[quad * VERTS_PER_QUAD + vertex] = sprite.getU(CORNERS[vertex][0]);
+                    texV[quad * VERTS_PER_QUAD + vertex] = sprite.getV(CORNERS[vertex][1]);
+                }
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            atlas.close();
+        }
+
+    }
+
+    /**
+     * Buffers owned by a single thread, since buffers are not thread-safe.
+     * @author soir20
+     */
+    @State(Scope.Thread)
+    public static class BufferState {
+        private NoOpVertexConsumer delegate;
+        private OverlayVertexConsumer buffer;
+
+        @Setup
+        public void setup(AtlasState atlasState) {
+            delegate = new NoOpVertexConsumer();
+            buffer = new OverlayVertexConsumer(atlasState.spriteFinder, atlasState.overlayIndex, delegate);
+        }
+
+    }
+
+}
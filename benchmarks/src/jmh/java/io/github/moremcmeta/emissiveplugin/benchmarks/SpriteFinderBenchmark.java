@@ -0,0 +1,114 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.benchmarks;
+
+import io.github.moremcmeta.emissiveplugin.fabricapi.SpriteFinder;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a {@link SpriteFinder} for a full atlas and looking up sprites in it. Lookups use a mix of
+ * quad centroids, which are what the overlay buffers search for, and random points that may fall between sprites.
+ * @author soir20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpriteFinderBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1024", "4096"})
+    public int spriteCount;
+
+    private SyntheticAtlas atlas;
+    private List<TextureAtlasSprite> sprites;
+    private SpriteFinder spriteFinder;
+    private float[] lookupU;
+    private float[] lookupV;
+
+    @Setup
+    public void setup() {
+        atlas = new SyntheticAtlas(spriteCount, 0);
+        sprites = atlas.sprites();
+        spriteFinder = new SpriteFinder(sprites);
+
+        Random random = new Random(1);
+        lookupU = new float[LOOKUPS];
+        lookupV = new float[LOOKUPS];
+        for (int index = 0; index < LOOKUPS; index++) {
+            if (index % 4 == 0) {
+                lookupU[index] = random.nextFloat();
+                lookupV[index] = random.nextFloat();
+            } else {
+                TextureAtlasSprite sprite = sprites.get(random.nextInt(sprites.size()));
+                lookupU[index] = (sprite.getU0() + sprite.getU1()) * 0.5f;
+                lookupV[index] = (sprite.getV0() + sprite.getV1()) * 0.5f;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        atlas.close();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SpriteFinder build() {
+        return new SpriteFinder(sprites);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void find(Blackhole blackhole) {
+        findAll(blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(LOOKUPS)
+    public void findConcurrent(Blackhole blackhole) {
+        findAll(blackhole);
+    }
+
+    /**
+     * Looks up all coordinates in the sprite finder.
+     * @param blackhole     consumes found sprites
+     */
+    private void findAll(Blackhole blackhole) {
+        for (int index = 0; index < LOOKUPS; index++) {
+            blackhole.consume(spriteFinder.find(lookupU[index], lookupV[index]));
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.benchmarks;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlayMetadata;
+import io.github.moremcmeta.emissiveplugin.metadata.ResolvedOverlay;
+import io.github.moremcmeta.emissiveplugin.metadata.TransparencyMode;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.texture.SpriteContents;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.resources.metadata.animation.FrameSize;
+import net.minecraft.core.Direction;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceMetadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A 4096x4096 atlas filled with sprites that are never uploaded, so that overlay code can be benchmarked without
+ * starting the game. Sprites are 16x16, 32x32, or 64x64 and are packed into rows from largest to smallest, like a
+ * real atlas. Every other sprite is a base sprite with an overlay, and the sprite after it is that overlay.
+ * @author soir20
+ */
+public final class SyntheticAtlas implements AutoCloseable {
+    public static final int SIZE = 4096;
+    private static final ResourceLocation LOCATION = new ResourceLocation(ModConstants.MOD_ID, "benchmark");
+    private static final int[] SPRITE_SIZES = {16, 32, 64};
+    private static final int VERTS_PER_QUAD = 4;
+    private static final int VERTEX_SIZE = 8;
+    private static final int WHITE = 0xFFFFFFFF;
+    private final NativeImage IMAGE;
+    private final List<TextureAtlasSprite> SPRITES;
+    private final List<TextureAtlasSprite> BASE_SPRITES;
+    private final List<TextureAtlasSprite> PLAIN_SPRITES;
+    private final List<ResolvedOverlay> OVERLAYS;
+    private final Set<ResourceLocation> OVERLAY_SPRITE_NAMES;
+
+    /**
+     * Creates a new atlas.
+     * @param spriteCount       number of sprites in the atlas
+     * @param seed              seed for sprite sizes
+     */
+    public SyntheticAtlas(int spriteCount, long seed) {
+        Random random = new Random(seed);
+        Integer[] sizes = new Integer[spriteCount];
+        for (int index = 0; index < spriteCount; index++) {
+            sizes[index] = SPRITE_SIZES[random.nextInt(SPRITE_SIZES.length)];
+        }
+        Arrays.sort(sizes, Collections.reverseOrder());
+
+        // All sprites share one image since they are never uploaded or animated
+        IMAGE = new NativeImage(1, 1, false);
+        SPRITES = new ArrayList<>();
+        BASE_SPRITES = new ArrayList<>();
+        PLAIN_SPRITES = new ArrayList<>();
+        OVERLAYS = new ArrayList<>();
+        OVERLAY_SPRITE_NAMES = new HashSet<>();
+
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+        for (int index = 0; index < spriteCount; index++) {
+            int size = sizes[index];
+            if (x + size > SIZE) {
+                x = 0;
+                y += rowHeight;
+                rowHeight = 0;
+            }
+
+            if (y + size > SIZE) {
+                throw new IllegalArgumentException("Atlas cannot fit " + spriteCount + " sprites");
+            }
+
+            SPRITES.add(makeSprite(new ResourceLocation(ModConstants.MOD_ID, "sprite_" + index), size, x, y));
+            x += size;
+            rowHeight = Math.max(rowHeight, size);
+        }
+
+        for (int index = 0; index + 1 < SPRITES.size(); index += 2) {
+            TextureAtlasSprite base = SPRITES.get(index);
+            TextureAtlasSprite overlay = SPRITES.get(index + 1);
+            BASE_SPRITES.add(base);
+            PLAIN_SPRITES.add(overlay);
+            OVERLAYS.add(new ResolvedOverlay(
+                    base,
+                    overlay,
+                    new OverlayMetadata(overlay.contents().name(), index % 4 == 0, TransparencyMode.AUTO)
+            ));
+            OVERLAY_SPRITE_NAMES.add(base.contents().name());
+        }
+    }
+
+    /**
+     * Gets all sprites in the atlas.
+     * @return all sprites
+     */
+    public List<TextureAtlasSprite> sprites() {
+        return SPRITES;
+    }
+
+    /**
+     * Gets all sprites that have an overlay.
+     * @return all sprites with an overlay
+     */
+    public List<TextureAtlasSprite> baseSprites() {
+        return BASE_SPRITES;
+    }
+
+    /**
+     * Gets all sprites that do not have an overlay.
+     * @return all sprites without an overlay
+     */
+    public List<TextureAtlasSprite> plainSprites() {
+        return PLAIN_SPRITES;
+    }
+
+    /**
+     * Gets the overlays for all base sprites.
+     * @return all overlays
+     */
+    public List<ResolvedOverlay> overlays() {
+        return OVERLAYS;
+    }
+
+    /**
+     * Gets the names of all sprites with an overlay.
+     * @return names of all sprites with an overlay
+     */
+    public Set<ResourceLocation> overlaySpriteNames() {
+        return OVERLAY_SPRITE_NAMES;
+    }
+
+    /**
+     * Gets the name of the atlas.
+     * @return name of the atlas
+     */
+    public ResourceLocation location() {
+        return LOCATION;
+    }
+
+    /**
+     * Creates a quad that covers a whole sprite.
+     * @param sprite        sprite for the quad
+     * @param direction     direction the quad faces
+     * @return quad for the sprite
+     */
+    public static BakedQuad makeQuad(TextureAtlasSprite sprite, Direction direction) {
+        float[][] corners = {{0, 0}, {0, 1}, {1, 1}, {1, 0}};
+        int[] vertices = new int[VERTS_PER_QUAD * VERTEX_SIZE];
+
+        for (int vertex = 0; vertex < VERTS_PER_QUAD; vertex++) {
+            int offset = vertex * VERTEX_SIZE;
+            vertices[offset] = Float.floatToRawIntBits(corners[vertex][0]);
+            vertices[offset + 1] = Float.floatToRawIntBits(corners[vertex][1]);
+            vertices[offset + 2] = Float.floatToRawIntBits(0);
+            vertices[offset + 3] = WHITE;
+            vertices[offset + 4] = Float.floatToRawIntBits(sprite.getU(corners[vertex][0]));
+            vertices[offset + 5] = Float.floatToRawIntBits(sprite.getV(corners[vertex][1]));
+        }
+
+        return new BakedQuad(vertices, -1, direction, sprite, true);
+    }
+
+    @Override
+    public void close() {
+        IMAGE.close();
+    }
+
+    /**
+     * Creates a sprite in this atlas.
+     * @param name      name of the sprite
+     * @param size      width and height of the sprite
+     * @param x         x-coordinate of the sprite's top-left corner in the atlas
+     * @param y         y-coordinate of the sprite's top-left corner in the atlas
+     * @return new sprite
+     */
+    private TextureAtlasSprite makeSprite(ResourceLocation name, int size, int x, int y) {
+        SpriteContents contents = new SpriteContents(name, new FrameSize(size, size), IMAGE, ResourceMetadata.EMPTY);
+        return new TextureAtlasSprite(LOCATION, contents, SIZE, SIZE, x, y) {};
+    }
+
+}
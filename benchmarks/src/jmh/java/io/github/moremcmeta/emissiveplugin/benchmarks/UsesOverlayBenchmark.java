@@ -0,0 +1,106 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.benchmarks;
+
+import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteNames;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.resources.model.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ModConstants#USES_OVERLAY}, which checks the materials of every model when models are baked.
+ * Most models do not use overlays, so the miss case should be as fast as possible.
+ * @author soir20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UsesOverlayBenchmark {
+    private static final int SPRITE_COUNT = 4096;
+
+    @Param({"1", "6", "24"})
+    public int materialCount;
+
+    private SyntheticAtlas atlas;
+    private Set<Material> materialsWithOverlay;
+    private Set<Material> materialsWithoutOverlay;
+
+    @Setup
+    public void setup() {
+        atlas = new SyntheticAtlas(SPRITE_COUNT, 0);
+        OverlaySpriteNames.replace(atlas.overlaySpriteNames());
+
+        // The only material with an overlay is checked last in the worst case
+        materialsWithoutOverlay = makeMaterials(atlas.plainSprites(), materialCount);
+        materialsWithOverlay = makeMaterials(atlas.plainSprites(), materialCount - 1);
+        materialsWithOverlay.add(new Material(atlas.location(), atlas.baseSprites().get(0).contents().name()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        OverlaySpriteNames.replace(Set.of());
+        atlas.close();
+    }
+
+    @Benchmark
+    public boolean withOverlay() {
+        return ModConstants.USES_OVERLAY.test(materialsWithOverlay);
+    }
+
+    @Benchmark
+    public boolean withoutOverlay() {
+        return ModConstants.USES_OVERLAY.test(materialsWithoutOverlay);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean withoutOverlayConcurrent() {
+        return ModConstants.USES_OVERLAY.test(materialsWithoutOverlay);
+    }
+
+    /**
+     * Creates materials for different sprites.
+     * @param sprites       sprites to choose from
+     * @param count         number of materials
+     * @return new materials
+     */
+    private Set<Material> makeMaterials(List<TextureAtlasSprite> sprites, int count) {
+        Set<Material> materials = new HashSet<>();
+        for (int index = 0; index < count; index++) {
+            materials.add(new Material(atlas.location(), sprites.get(index * 31 % sprites.size()).contents().name()));
+        }
+
+        return materials;
+    }
+
+}
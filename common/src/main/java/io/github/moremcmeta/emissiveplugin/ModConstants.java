@@ -18,8 +18,8 @@
 package io.github.moremcmeta.emissiveplugin;
 
 import io.github.moremcmeta.emissiveplugin.metadata.OverlayMetadataAnalyzer;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteNames;
 import io.github.moremcmeta.moremcmeta.api.client.metadata.MetadataAnalyzer;
-import io.github.moremcmeta.moremcmeta.api.client.metadata.MetadataRegistry;
 import io.github.moremcmeta.moremcmeta.api.client.texture.ComponentBuilder;
 import io.github.moremcmeta.moremcmeta.api.client.texture.TextureComponent;
 import net.minecraft.client.resources.model.Material;
@@ -37,14 +37,16 @@ public final class ModConstants {
     public static final String SECTION_NAME = "overlay";
     public static final MetadataAnalyzer ANALYZER = new OverlayMetadataAnalyzer();
     public static final ComponentBuilder COMPONENT_BUILDER = (metadata, frames) -> new TextureComponent<>() {};
-    public static final Predicate<Set<Material>> USES_OVERLAY = (usedMaterials) -> usedMaterials.stream()
-            .map(Material::texture)
-            .anyMatch(
-                    (spriteName) -> MetadataRegistry.INSTANCE.metadataFromSpriteName(
-                            ModConstants.MOD_ID,
-                            spriteName
-                    ).isPresent()
-            );
+    public static final Predicate<Set<Material>> USES_OVERLAY = (usedMaterials) -> {
+        OverlaySpriteNames overlaySpriteNames = OverlaySpriteNames.current();
+        for (Material material : usedMaterials) {
+            if (overlaySpriteNames.hasOverlay(material.texture())) {
+                return true;
+            }
+        }
+
+        return false;
+    };
     private static final int DIRECTIONS = Direction.values().length;
     private static final float OFFSET_COEFFICIENT = 0.001f;
     public static final float[] X_OFFSETS = new float[DIRECTIONS];
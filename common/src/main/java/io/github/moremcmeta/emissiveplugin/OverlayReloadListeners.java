@@ -0,0 +1,49 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Runs actions after the block atlas is uploaded so that caches built from the previous resources can be
+ * replaced. Overlays are always stitched to the block atlas, and it is uploaded at the same time that newly-baked
+ * models are applied, so this is the point where all overlay-related resources change.
+ * @author soir20
+ */
+public final class OverlayReloadListeners {
+    private static final List<Runnable> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers an action to run whenever the block atlas is reloaded.
+     * @param listener      action to run on reload
+     */
+    public static void register(Runnable listener) {
+        LISTENERS.add(requireNonNull(listener, "Listener cannot be null"));
+    }
+
+    /**
+     * Runs all registered actions. Should only be called once the block atlas has been uploaded.
+     */
+    public static void onBlockAtlasReload() {
+        LISTENERS.forEach(Runnable::run);
+    }
+
+}
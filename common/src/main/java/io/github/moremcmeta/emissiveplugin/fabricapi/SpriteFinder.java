@@ -20,9 +20,10 @@ package io.github.moremcmeta.emissiveplugin.fabricapi;
 /*
  * This file was originally part of the FabricMC project under the Apache license:
  * https://github.com/FabricMC/fabric/blob/8cafc1423557e2c32f925a899af026559e78ef6c/fabric-renderer-api-v1/src/client/java/net/fabricmc/fabric/impl/renderer/SpriteFinderImpl.java.
- * Unused methods referencing Fabric API code have been deleted, the find() method has been
- * refactored to return Optional<TextureAtlasSprite>, class names have been updated to use
- * the Mojang mappings, and comments have been edited for clarity. The original copyright
+ * Unused methods referencing Fabric API code have been deleted, the quad tree has been
+ * rewritten to store its nodes in flat arrays, the find() method has been refactored to
+ * return a nullable sprite or a sprite index, class names have been updated to use the
+ * Mojang mappings, and comments have been edited for clarity. The original copyright
  * notice follows below. See APACHE.md for the full text of the license.
  *
  * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
@@ -44,9 +45,10 @@ import net.minecraft.client.renderer.texture.TextureAtlas;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.Arrays;
+import java.util.Collection;
 
 /**
  * Indexes an atlas sprite to allow fast lookup of Sprites from
@@ -56,18 +58,37 @@ import java.util.function.Consumer;
  * would be fastest but would be memory-intensive for large atlases
  * and unsuitable for any atlas that isn't consistently aligned to
  * a fixed cell size.
+ *
+ * Nodes are stored in flat arrays so that a lookup only reads
+ * primitives and never allocates. Each node has four child slots,
+ * ordered low-low, low-high, high-low, high-high. A slot is zero
+ * when empty, positive when it points to another node, and negative
+ * when it holds a sprite index (stored as -(index + 1)). The root is
+ * always node zero, so it can never be a child.
  * @author FabricMC, soir20
  */
 @SuppressWarnings("MissingJavadoc")
 public final class SpriteFinder {
-    private static final Logger LOGGER = LogManager.getLogger();
+    public static final int NOT_FOUND = -1;
+    private static final int QUADRANTS = 4;
 
-    private final Node root;
-    private int badSpriteCount = 0;
+    private final TextureAtlasSprite[] SPRITES;
+    private final float[] MID_U;
+    private final float[] MID_V;
+    private final int[] CHILDREN;
 
     public SpriteFinder(TextureAtlas atlas) {
-        root = new Node(0.5f, 0.5f, 0.25f);
-        atlas.texturesByName.values().forEach(root::add);
+        this(atlas.texturesByName.values());
+    }
+
+    public SpriteFinder(Collection<TextureAtlasSprite> sprites) {
+        Builder builder = new Builder(sprites.toArray(new TextureAtlasSprite[0]));
+        builder.build();
+
+        SPRITES = builder.sprites;
+        MID_U = Arrays.copyOf(builder.midU, builder.nodeCount);
+        MID_V = Arrays.copyOf(builder.midV, builder.nodeCount);
+        CHILDREN = Arrays.copyOf(builder.children, builder.nodeCount * QUADRANTS);
     }
 
     /**
@@ -79,94 +100,143 @@ public final class SpriteFinder {
      * Note that all the above refers to u,v coordinates. Geometric vertex does not matter,
      * except to the extent it was used to determine u,v.</p>
      */
-    public Optional<TextureAtlasSprite> find(float u, float v) {
-        return root.find(u, v);
+    @Nullable
+    public TextureAtlasSprite find(float u, float v) {
+        int index = findIndex(u, v);
+        return index == NOT_FOUND ? null : SPRITES[index];
     }
 
-    private final class Node {
-        final float midU;
-        final float midV;
-        final float cellRadius;
-        Object lowLow = null;
-        Object lowHigh = null;
-        Object highLow = null;
-        Object highHigh = null;
-
-        Node(float midU, float midV, float radius) {
-            this.midU = midU;
-            this.midV = midV;
-            cellRadius = radius;
+    /**
+     * Same as {@link #find(float, float)}, but returns the index of the sprite
+     * for {@link #sprite(int)} or {@link #NOT_FOUND} if there is no sprite at
+     * the given coordinates.
+     */
+    public int findIndex(float u, float v) {
+        int node = 0;
+
+        while (true) {
+            int quadrant = (u < MID_U[node] ? 0 : 2) + (v < MID_V[node] ? 0 : 1);
+            int child = CHILDREN[node * QUADRANTS + quadrant];
+
+            if (child > 0) {
+                node = child;
+            } else {
+                return child < 0 ? -child - 1 : NOT_FOUND;
+            }
         }
+    }
+
+    public TextureAtlasSprite sprite(int index) {
+        return SPRITES[index];
+    }
+
+    public int spriteCount() {
+        return SPRITES.length;
+    }
 
+    /**
+     * Builds the node arrays. Arrays grow as nodes are added and are
+     * trimmed once all sprites have been added.
+     */
+    private static final class Builder {
+        static final Logger LOGGER = LogManager.getLogger();
         static final float EPS = 0.00001f;
+        static final int INITIAL_NODES = 64;
+
+        final TextureAtlasSprite[] sprites;
+        float[] midU = new float[INITIAL_NODES];
+        float[] midV = new float[INITIAL_NODES];
+        float[] cellRadius = new float[INITIAL_NODES];
+        int[] children = new int[INITIAL_NODES * QUADRANTS];
+        int nodeCount;
+        int badSpriteCount;
+
+        Builder(TextureAtlasSprite[] sprites) {
+            this.sprites = sprites;
+        }
+
+        void build() {
+            int root = addNode(0.5f, 0.5f, 0.25f);
 
-        void add(TextureAtlasSprite sprite) {
-            if (sprite.getU0() < 0 - EPS || sprite.getU1() > 1 + EPS || sprite.getV0() < 0 - EPS || sprite.getV1() > 1 + EPS) {
-                // Sprite has broken bounds. This SHOULD NOT happen, but in the past some mods have broken this.
-                // Prefer failing with a log warning rather than risking a stack overflow.
-                if (badSpriteCount++ < 5) {
-                    String errorMessage = "SpriteFinderImpl: Skipping sprite {} with broken bounds [{}, {}]x[{}, {}]. Sprite bounds should be between 0 and 1.";
-                    LOGGER.error(errorMessage, sprite.contents().name(), sprite.getU0(), sprite.getU1(), sprite.getV0(), sprite.getV1());
+            for (int spriteIndex = 0; spriteIndex < sprites.length; spriteIndex++) {
+                TextureAtlasSprite sprite = sprites[spriteIndex];
+
+                if (sprite.getU0() < 0 - EPS || sprite.getU1() > 1 + EPS || sprite.getV0() < 0 - EPS || sprite.getV1() > 1 + EPS) {
+                    // Sprite has broken bounds. This SHOULD NOT happen, but in the past some mods have broken this.
+                    // Prefer failing with a log warning rather than risking a stack overflow.
+                    if (badSpriteCount++ < 5) {
+                        String errorMessage = "SpriteFinderImpl: Skipping sprite {} with broken bounds [{}, {}]x[{}, {}]. Sprite bounds should be between 0 and 1.";
+                        LOGGER.error(errorMessage, sprite.contents().name(), sprite.getU0(), sprite.getU1(), sprite.getV0(), sprite.getV1());
+                    }
+
+                    continue;
                 }
 
-                return;
+                add(root, spriteIndex);
             }
+        }
 
-            final boolean lowU = sprite.getU0() < midU - EPS;
-            final boolean highU = sprite.getU1() > midU + EPS;
-            final boolean lowV = sprite.getV0() < midV - EPS;
-            final boolean highV = sprite.getV1() > midV + EPS;
+        private void add(int node, int spriteIndex) {
+            TextureAtlasSprite sprite = sprites[spriteIndex];
+            float nodeMidU = midU[node];
+            float nodeMidV = midV[node];
+
+            final boolean lowU = sprite.getU0() < nodeMidU - EPS;
+            final boolean highU = sprite.getU1() > nodeMidU + EPS;
+            final boolean lowV = sprite.getV0() < nodeMidV - EPS;
+            final boolean highV = sprite.getV1() > nodeMidV + EPS;
 
             if (lowU && lowV) {
-                addInner(sprite, lowLow, -1, -1, q -> lowLow = q);
+                addInner(node, 0, spriteIndex);
             }
 
             if (lowU && highV) {
-                addInner(sprite, lowHigh, -1, 1, q -> lowHigh = q);
+                addInner(node, 1, spriteIndex);
             }
 
             if (highU && lowV) {
-                addInner(sprite, highLow, 1, -1, q -> highLow = q);
+                addInner(node, 2, spriteIndex);
             }
 
             if (highU && highV) {
-                addInner(sprite, highHigh, 1, 1, q -> highHigh = q);
+                addInner(node, 3, spriteIndex);
             }
         }
 
-        private void addInner(TextureAtlasSprite sprite, Object quadrant, int uStep, int vStep, Consumer<Object> setter) {
-            if (quadrant == null) {
-                setter.accept(sprite);
-            } else if (quadrant instanceof Node) {
-                ((Node) quadrant).add(sprite);
-            } else {
-                Node n = new Node(midU + cellRadius * uStep, midV + cellRadius * vStep, cellRadius * 0.5f);
-
-                if (quadrant instanceof TextureAtlasSprite) {
-                    n.add((TextureAtlasSprite) quadrant);
-                }
-
-                n.add(sprite);
-                setter.accept(n);
-            }
-        }
+        private void addInner(int node, int quadrant, int spriteIndex) {
+            int slot = node * QUADRANTS + quadrant;
+            int child = children[slot];
 
-        private Optional<TextureAtlasSprite> find(float u, float v) {
-            if (u < midU) {
-                return v < midV ? findInner(lowLow, u, v) : findInner(lowHigh, u, v);
+            if (child == 0) {
+                children[slot] = -(spriteIndex + 1);
+            } else if (child > 0) {
+                add(child, spriteIndex);
             } else {
-                return v < midV ? findInner(highLow, u, v) : findInner(highHigh, u, v);
+                int uStep = quadrant < 2 ? -1 : 1;
+                int vStep = (quadrant & 1) == 0 ? -1 : 1;
+                float radius = cellRadius[node];
+                int newNode = addNode(midU[node] + radius * uStep, midV[node] + radius * vStep, radius * 0.5f);
+
+                add(newNode, -child - 1);
+                add(newNode, spriteIndex);
+                children[slot] = newNode;
             }
         }
 
-        private Optional<TextureAtlasSprite> findInner(Object quadrant, float u, float v) {
-            if (quadrant instanceof TextureAtlasSprite) {
-                return Optional.of((TextureAtlasSprite) quadrant);
-            } else if (quadrant instanceof Node) {
-                return ((Node) quadrant).find(u, v);
+        private int addNode(float nodeMidU, float nodeMidV, float radius) {
+            if (nodeCount == midU.length) {
+                int newLength = midU.length * 2;
+                midU = Arrays.copyOf(midU, newLength);
+                midV = Arrays.copyOf(midV, newLength);
+                cellRadius = Arrays.copyOf(cellRadius, newLength);
+                children = Arrays.copyOf(children, newLength * QUADRANTS);
             }
 
-            return Optional.empty();
+            int node = nodeCount++;
+            midU[node] = nodeMidU;
+            midV[node] = nodeMidV;
+            cellRadius[node] = radius;
+            return node;
         }
     }
 }
@@ -0,0 +1,77 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.minecraft.resources.ResourceLocation;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Flight Recorder event for rendering the overlay of one entity or block entity model part. Overlays are
+ * rendered every frame, so only unusually slow passes are recorded by default.
+ * @author soir20
+ */
+@Name(EntityOverlayEvent.NAME)
+@Label("Entity Overlay Pass")
+@Category({"MoreMcmeta", "Emissive Plugin"})
+@Description("Renders an overlay over an entity or block entity model part")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class EntityOverlayEvent extends Event {
+    public static final String NAME = "moremcmeta_emissive_plugin.EntityOverlay";
+
+    @Label("Overlay Texture")
+    private String texture;
+
+    @Label("Quads")
+    private int quadCount;
+
+    @Label("Emissive")
+    private boolean emissive;
+
+    @Label("Block Entity")
+    private boolean blockEntity;
+
+    /**
+     * Ends the event and commits it if it is being recorded.
+     * @param texture           name of the overlay texture
+     * @param quadCount         number of overlay quads rendered
+     * @param emissive          whether the overlay is emissive
+     * @param blockEntity       whether the overlay was rendered for a block entity
+     */
+    public void finish(ResourceLocation texture, int quadCount, boolean emissive, boolean blockEntity) {
+        requireNonNull(texture, "Texture cannot be null");
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.texture = texture.toString();
+        this.quadCount = quadCount;
+        this.emissive = emissive;
+        this.blockEntity = blockEntity;
+        commit();
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.minecraft.client.resources.model.BakedModel;
+import net.minecraft.resources.ResourceLocation;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Flight Recorder event for deciding whether a baked model needs to be wrapped to render overlays. Every model
+ * is checked on each reload, so the event is disabled by default.
+ * @author soir20
+ */
+@Name(ModelWrapEvent.NAME)
+@Label("Overlay Model Wrap")
+@Category({"MoreMcmeta", "Emissive Plugin"})
+@Description("Checks whether a baked model uses overlays and wraps it if it does")
+@StackTrace(false)
+@Enabled(false)
+@Threshold("0 ms")
+public final class ModelWrapEvent extends Event {
+    public static final String NAME = "moremcmeta_emissive_plugin.ModelWrap";
+
+    @Label("Model")
+    private String model;
+
+    @Label("Model Class")
+    private Class<?> modelClass;
+
+    @Label("Uses Overlay")
+    private boolean usesOverlay;
+
+    @Label("Wrapped")
+    private boolean wrapped;
+
+    /**
+     * Ends the event and commits it if it is being recorded.
+     * @param model             location of the model
+     * @param bakedModel        model before it was wrapped
+     * @param usesOverlay       whether the model uses any textures with overlays
+     * @param wrapped           whether the model was wrapped
+     */
+    public void finish(ResourceLocation model, BakedModel bakedModel, boolean usesOverlay, boolean wrapped) {
+        requireNonNull(model, "Model cannot be null");
+        requireNonNull(bakedModel, "Baked model cannot be null");
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.model = model.toString();
+        modelClass = bakedModel.getClass();
+        this.usesOverlay = usesOverlay;
+        this.wrapped = wrapped;
+        commit();
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.minecraft.resources.ResourceLocation;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Flight Recorder event for reading and decoding one overlay texture while the block atlas is stitched.
+ * @author soir20
+ */
+@Name(OverlaySpriteLoadEvent.NAME)
+@Label("Overlay Sprite Load")
+@Category({"MoreMcmeta", "Emissive Plugin"})
+@Description("Reads and decodes an overlay texture so it can be stitched to the block atlas")
+@StackTrace(false)
+@Threshold("0 ms")
+public final class OverlaySpriteLoadEvent extends Event {
+    public static final String NAME = "moremcmeta_emissive_plugin.OverlaySpriteLoad";
+
+    @Label("Texture")
+    private String texture;
+
+    @Label("Encoded Size")
+    @DataAmount
+    private int encodedBytes;
+
+    @Label("Width")
+    private int width;
+
+    @Label("Height")
+    private int height;
+
+    @Label("Loaded")
+    @Description("Whether the texture was found and decoded")
+    private boolean loaded;
+
+    /**
+     * Ends the event and commits it if it is being recorded.
+     * @param texture           path to the overlay texture
+     * @param encodedBytes      size of the encoded texture or 0 if it was not read
+     * @param width             width of the decoded texture or 0 if it was not decoded
+     * @param height            height of the decoded texture or 0 if it was not decoded
+     * @param loaded            whether the texture was found and decoded
+     */
+    public void finish(ResourceLocation texture, int encodedBytes, int width, int height, boolean loaded) {
+        requireNonNull(texture, "Texture cannot be null");
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.texture = texture.toString();
+        this.encodedBytes = encodedBytes;
+        this.width = width;
+        this.height = height;
+        this.loaded = loaded;
+        commit();
+    }
+
+}
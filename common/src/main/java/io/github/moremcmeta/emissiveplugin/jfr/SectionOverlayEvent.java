@@ -0,0 +1,150 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Flight Recorder event for a section rebuild that did overlay work. The event spans the whole rebuild so that
+ * overlay work can be compared to the rest of the rebuild, and the threshold applies to the whole rebuild.
+ * Rebuilds without any overlay work are never committed. Each chunk builder thread rebuilds one section at a
+ * time, so the event for the current section is kept per thread.
+ * @author soir20
+ */
+@Name(SectionOverlayEvent.NAME)
+@Label("Section Rebuild With Overlays")
+@Category({"MoreMcmeta", "Emissive Plugin"})
+@Description("A section rebuild that did overlay work. The duration covers the whole rebuild.")
+@StackTrace(false)
+@Threshold("5 ms")
+public final class SectionOverlayEvent extends Event {
+    public static final String NAME = "moremcmeta_emissive_plugin.SectionOverlay";
+    private static final EventType TYPE = EventType.getEventType(SectionOverlayEvent.class);
+    private static final ThreadLocal<SectionOverlayEvent> CURRENT = new ThreadLocal<>();
+
+    @Label("Block Overlay Quads")
+    private int blockQuads;
+
+    @Label("Block Overlay Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long blockTime;
+
+    @Label("Fluid Overlay Passes")
+    private int fluidPasses;
+
+    @Label("Fluid Overlay Quads")
+    private int fluidQuads;
+
+    @Label("Fluid Overlay Time")
+    @Timespan(Timespan.NANOSECONDS)
+    private long fluidTime;
+
+    /**
+     * Starts an event for the section being rebuilt on the current thread, if the event is enabled. Nothing is
+     * allocated while the event is disabled.
+     */
+    public static void beginSection() {
+        if (!TYPE.isEnabled()) {
+            return;
+        }
+
+        SectionOverlayEvent event = new SectionOverlayEvent();
+        event.begin();
+        CURRENT.set(event);
+    }
+
+    /**
+     * Adds overlay quads created for blocks to the section being rebuilt on the current thread.
+     * @param quadCount     number of overlay quads
+     * @param duration      duration of the overlay work in nanoseconds
+     */
+    public static void recordBlockQuads(int quadCount, long duration) {
+        SectionOverlayEvent event = current();
+        if (event == null) {
+            return;
+        }
+
+        event.blockQuads += quadCount;
+        event.blockTime += duration;
+    }
+
+    /**
+     * Adds a fluid overlay pass to the section being rebuilt on the current thread.
+     * @param quadCount     number of fluid quads checked for overlays
+     * @param duration      duration of the pass in nanoseconds
+     */
+    public static void recordFluidPass(int quadCount, long duration) {
+        SectionOverlayEvent event = current();
+        if (event == null) {
+            return;
+        }
+
+        event.fluidPasses++;
+        event.fluidQuads += quadCount;
+        event.fluidTime += duration;
+    }
+
+    /**
+     * Ends the event for the section being rebuilt on the current thread and commits it if it did overlay work
+     * and is longer than the threshold.
+     */
+    public static void endSection() {
+        SectionOverlayEvent event = current();
+        if (event == null) {
+            return;
+        }
+
+        CURRENT.remove();
+        if (event.blockQuads == 0 && event.blockTime == 0 && event.fluidPasses == 0) {
+            return;
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    /**
+     * Checks whether an event was started for the section being rebuilt on the current thread.
+     * @return whether an event was started for the current section
+     */
+    public static boolean isRecording() {
+        return current() != null;
+    }
+
+    /**
+     * Gets the event for the section being rebuilt on the current thread without a thread-local lookup while
+     * the event is disabled.
+     * @return event for the current section or null if there is none
+     */
+    @Nullable
+    private static SectionOverlayEvent current() {
+        return TYPE.isEnabled() ? CURRENT.get() : null;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.minecraft.resources.ResourceLocation;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Flight Recorder event for rebuilding the sprite finder and overlay index of an atlas after it is uploaded.
+ * @author soir20
+ */
+@Name(SpriteFinderRebuildEvent.NAME)
+@Label("Sprite Finder Rebuild")
+@Category({"MoreMcmeta", "Emissive Plugin"})
+@Description("Rebuilds the sprite finder and overlay index for a reloaded atlas")
+@StackTrace(false)
+@Threshold("0 ms")
+public final class SpriteFinderRebuildEvent extends Event {
+    public static final String NAME = "moremcmeta_emissive_plugin.SpriteFinderRebuild";
+
+    @Label("Atlas")
+    private String atlas;
+
+    @Label("Sprites")
+    private int spriteCount;
+
+    @Label("Overlays")
+    private int overlayCount;
+
+    /**
+     * Ends the event and commits it if it is being recorded.
+     * @param atlas             name of the atlas
+     * @param spriteCount       number of sprites in the atlas
+     * @param overlayCount      number of sprites in the atlas with an overlay
+     */
+    public void finish(ResourceLocation atlas, int spriteCount, int overlayCount) {
+        requireNonNull(atlas, "Atlas cannot be null");
+        if (!shouldCommit()) {
+            return;
+        }
+
+        this.atlas = atlas.toString();
+        this.spriteCount = spriteCount;
+        this.overlayCount = overlayCount;
+        commit();
+    }
+
+}
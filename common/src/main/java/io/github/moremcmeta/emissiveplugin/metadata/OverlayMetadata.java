@@ -20,6 +20,8 @@ package io.github.moremcmeta.emissiveplugin.metadata;
 import io.github.moremcmeta.moremcmeta.api.client.metadata.AnalyzedMetadata;
 import net.minecraft.resources.ResourceLocation;
 
+import java.util.Objects;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -67,4 +69,24 @@ public final class OverlayMetadata implements AnalyzedMetadata {
         return TRANSPARENCY_MODE;
     }
 
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof OverlayMetadata otherMetadata)) {
+            return false;
+        }
+
+        return OVERLAY_SPRITE_NAME.equals(otherMetadata.OVERLAY_SPRITE_NAME)
+                && IS_EMISSIVE == otherMetadata.IS_EMISSIVE
+                && TRANSPARENCY_MODE == otherMetadata.TRANSPARENCY_MODE;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(OVERLAY_SPRITE_NAME, IS_EMISSIVE, TRANSPARENCY_MODE);
+    }
+
 }
@@ -37,7 +37,29 @@ public final class OverlayMetadataAnalyzer implements MetadataAnalyzer {
     public AnalyzedMetadata analyze(MetadataView metadata, int imageWidth, int imageHeight) throws InvalidMetadataException {
         requireNonNull(metadata, "Metadata cannot be null");
 
-        Optional<String> rawOverlayLocation = metadata.stringValue("texture");
+        return fromValues(
+                metadata.stringValue("texture"),
+                metadata.booleanValue("emissive"),
+                metadata.stringValue("transparency")
+        );
+    }
+
+    /**
+     * Parses overlay metadata from the raw values of its properties, so that overlay metadata can be read
+     * without MoreMcmeta in the same way as this analyzer reads it.
+     * @param rawOverlayLocation        value of the texture property
+     * @param isEmissive                value of the emissive property
+     * @param rawTransparencyMode       value of the transparency property
+     * @return overlay metadata with the given values
+     * @throws InvalidMetadataException if the values are not valid overlay metadata
+     */
+    public static OverlayMetadata fromValues(Optional<String> rawOverlayLocation, Optional<Boolean> isEmissive,
+                                             Optional<String> rawTransparencyMode)
+            throws InvalidMetadataException {
+        requireNonNull(rawOverlayLocation, "Overlay location cannot be null");
+        requireNonNull(isEmissive, "Emissive value cannot be null");
+        requireNonNull(rawTransparencyMode, "Transparency mode cannot be null");
+
         if (rawOverlayLocation.isEmpty()) {
             throw new InvalidMetadataException("Overlays must have a texture defined");
         }
@@ -47,20 +69,21 @@ public final class OverlayMetadataAnalyzer implements MetadataAnalyzer {
             throw new InvalidMetadataException("Non [a-z0-9_.-] character in overlay texture location");
         }
 
-        boolean isEmissive = metadata.booleanValue("emissive").orElse(false);
-
-        String rawTransparencyMode = metadata.stringValue("transparency").orElse("auto");
+        String transparency = rawTransparencyMode.orElse("auto");
         TransparencyMode transparencyMode;
-        if (rawTransparencyMode.equals("auto")) {
+        if (transparency.equals("auto")) {
             transparencyMode = TransparencyMode.AUTO;
-        } else if (rawTransparencyMode.equals("translucent")) {
+        } else if (transparency.equals("translucent")) {
             transparencyMode = TransparencyMode.TRANSLUCENT;
         } else {
-            throw new InvalidMetadataException("Unknown transparency: " + rawTransparencyMode);
+            throw new InvalidMetadataException("Unknown transparency: " + transparency);
         }
 
-
-        return new OverlayMetadata(SpriteName.fromTexturePath(overlayLocation), isEmissive, transparencyMode);
+        return new OverlayMetadata(
+                SpriteName.fromTexturePath(overlayLocation),
+                isEmissive.orElse(false),
+                transparencyMode
+        );
     }
 
 }
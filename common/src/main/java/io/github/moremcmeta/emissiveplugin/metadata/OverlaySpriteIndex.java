@@ -0,0 +1,116 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.metadata;
+
+import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.moremcmeta.api.client.metadata.AnalyzedMetadata;
+import io.github.moremcmeta.moremcmeta.api.client.metadata.MetadataRegistry;
+import net.minecraft.client.renderer.texture.TextureAtlas;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Maps each sprite in an atlas that has an overlay to its {@link ResolvedOverlay}. Sprites are compared by
+ * identity, so a lookup replaces a metadata lookup by name and an atlas lookup for the overlay sprite. The index
+ * is never modified after it is built, so it can be read from any thread.
+ * @author soir20
+ */
+public final class OverlaySpriteIndex {
+    public static final OverlaySpriteIndex EMPTY = new OverlaySpriteIndex(new IdentityHashMap<>());
+    private static final Optional<ResolvedOverlay> NO_OVERLAY = Optional.empty();
+    private final Map<TextureAtlasSprite, Optional<ResolvedOverlay>> OVERLAYS;
+
+    /**
+     * Builds an index for all sprites in an atlas. Overlay sprites are resolved in the same atlas.
+     * @param atlas     atlas to index
+     * @return index for the atlas
+     */
+    public static OverlaySpriteIndex build(TextureAtlas atlas) {
+        requireNonNull(atlas, "Atlas cannot be null");
+
+        OverlaySpriteNames overlaySpriteNames = OverlaySpriteNames.current();
+        Map<TextureAtlasSprite, Optional<ResolvedOverlay>> overlays = new IdentityHashMap<>();
+        for (TextureAtlasSprite sprite : atlas.texturesByName.values()) {
+            if (!overlaySpriteNames.hasOverlay(sprite.contents().name())) {
+                continue;
+            }
+
+            Optional<AnalyzedMetadata> metadataOptional = MetadataRegistry.INSTANCE.metadataFromSpriteName(
+                    ModConstants.MOD_ID,
+                    sprite.contents().name()
+            );
+            if (metadataOptional.isEmpty()) {
+                continue;
+            }
+
+            OverlayMetadata metadata = (OverlayMetadata) metadataOptional.get();
+            TextureAtlasSprite overlaySprite = atlas.getSprite(metadata.overlaySpriteName());
+            overlays.put(sprite, Optional.of(new ResolvedOverlay(sprite, overlaySprite, metadata)));
+        }
+
+        return new OverlaySpriteIndex(overlays);
+    }
+
+    /**
+     * Creates an index from overlays that have already been resolved.
+     * @param overlays      overlays to index by their base sprites
+     * @return index with the given overlays
+     */
+    public static OverlaySpriteIndex of(Collection<ResolvedOverlay> overlays) {
+        requireNonNull(overlays, "Overlays cannot be null");
+
+        Map<TextureAtlasSprite, Optional<ResolvedOverlay>> overlaysBySprite = new IdentityHashMap<>();
+        for (ResolvedOverlay overlay : overlays) {
+            overlaysBySprite.put(overlay.baseSprite(), Optional.of(overlay));
+        }
+
+        return new OverlaySpriteIndex(overlaysBySprite);
+    }
+
+    /**
+     * Finds the overlay for a sprite.
+     * @param baseSprite    sprite that may have an overlay
+     * @return overlay for the sprite or empty if the sprite has no overlay
+     */
+    public Optional<ResolvedOverlay> find(TextureAtlasSprite baseSprite) {
+        return OVERLAYS.getOrDefault(baseSprite, NO_OVERLAY);
+    }
+
+    /**
+     * Gets the number of sprites that have an overlay.
+     * @return number of sprites with an overlay
+     */
+    public int size() {
+        return OVERLAYS.size();
+    }
+
+    /**
+     * Creates a new index.
+     * @param overlays      overlays by base sprite
+     */
+    private OverlaySpriteIndex(Map<TextureAtlasSprite, Optional<ResolvedOverlay>> overlays) {
+        OVERLAYS = overlays;
+    }
+
+}
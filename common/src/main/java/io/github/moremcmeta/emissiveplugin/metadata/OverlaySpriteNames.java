@@ -0,0 +1,132 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.metadata;
+
+import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.moremcmeta.api.client.metadata.MetadataRegistry;
+import io.github.moremcmeta.moremcmeta.api.client.texture.SpriteName;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Snapshot of the names of all sprites that have overlay metadata. Checking a name is a single set probe
+ * without the conversions and {@link java.util.Optional} of a {@link MetadataRegistry} lookup. A bit filter
+ * indexed by the name's hash rejects most names without an overlay before the set is probed, since nearly
+ * all sprites that are checked do not have one. A new snapshot is captured when the block atlas is stitched
+ * and replaces the previous one all at once, so readers on any thread see either the old or new set.
+ * @author soir20
+ */
+public final class OverlaySpriteNames {
+    private static final String TEXTURE_PREFIX = "textures/";
+    private static final String TEXTURE_SUFFIX = ".png";
+    private static final int MIN_FILTER_BITS = Long.SIZE;
+    private static final int FILTER_BITS_PER_NAME = 8;
+    private static volatile OverlaySpriteNames current = new OverlaySpriteNames(Set.of());
+    private final Set<ResourceLocation> NAMES;
+    private final long[] FILTER;
+    private final int FILTER_MASK;
+
+    /**
+     * Gets the most recently captured snapshot.
+     * @return most recent snapshot
+     */
+    public static OverlaySpriteNames current() {
+        return current;
+    }
+
+    /**
+     * Captures the names of all sprites that currently have overlay metadata in the {@link MetadataRegistry}
+     * and replaces the current snapshot.
+     * @return the new snapshot
+     */
+    public static OverlaySpriteNames capture() {
+        Set<ResourceLocation> names = new HashSet<>();
+        MetadataRegistry.INSTANCE.metadataByPlugin(ModConstants.MOD_ID).keySet().forEach((texturePath) -> {
+            String path = texturePath.getPath();
+
+            // Only textures in the textures folder can be sprites
+            if (path.startsWith(TEXTURE_PREFIX) && path.endsWith(TEXTURE_SUFFIX)) {
+                names.add(SpriteName.fromTexturePath(texturePath));
+            }
+        });
+
+        return replace(names);
+    }
+
+    /**
+     * Replaces the current snapshot with the given sprite names. Used instead of {@link #capture()} when the
+     * sprites with overlays are already known, such as in benchmarks.
+     * @param names     names of all sprites with overlay metadata
+     * @return the new snapshot
+     */
+    public static OverlaySpriteNames replace(Set<ResourceLocation> names) {
+        OverlaySpriteNames snapshot = new OverlaySpriteNames(names);
+        current = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Checks whether a sprite has overlay metadata.
+     * @param spriteName        name of the sprite
+     * @return whether the sprite has overlay metadata
+     */
+    public boolean hasOverlay(ResourceLocation spriteName) {
+        int filterIndex = filterIndex(spriteName);
+        if ((FILTER[filterIndex >>> 6] & (1L << filterIndex)) == 0) {
+            return false;
+        }
+
+        return NAMES.contains(spriteName);
+    }
+
+    /**
+     * Creates a new snapshot.
+     * @param names     names of all sprites with overlay metadata
+     */
+    private OverlaySpriteNames(Set<ResourceLocation> names) {
+        NAMES = Set.copyOf(requireNonNull(names, "Names cannot be null"));
+
+        int filterBits = MIN_FILTER_BITS;
+        while (filterBits < NAMES.size() * FILTER_BITS_PER_NAME) {
+            filterBits <<= 1;
+        }
+
+        FILTER = new long[filterBits / Long.SIZE];
+        FILTER_MASK = filterBits - 1;
+        for (ResourceLocation name : NAMES) {
+            int filterIndex = filterIndex(name);
+            FILTER[filterIndex >>> 6] |= 1L << filterIndex;
+        }
+    }
+
+    /**
+     * Gets the bit in the filter for a sprite name. The hash combines the namespace and path hashes, which
+     * strings cache after they are first computed.
+     * @param spriteName        name of the sprite
+     * @return index of the sprite's bit in the filter
+     */
+    private int filterIndex(ResourceLocation spriteName) {
+        int hash = spriteName.hashCode();
+        return (hash ^ (hash >>> 16)) & FILTER_MASK;
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.metadata;
+
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link OverlayMetadata} for a base sprite that has been resolved against the atlas containing that sprite.
+ * @author soir20
+ */
+public final class ResolvedOverlay {
+    private final TextureAtlasSprite BASE_SPRITE;
+    private final TextureAtlasSprite OVERLAY_SPRITE;
+    private final boolean IS_EMISSIVE;
+    private final TransparencyMode TRANSPARENCY_MODE;
+    private final UvRemap UV_REMAP;
+
+    /**
+     * Creates a new resolved overlay.
+     * @param baseSprite        sprite that has an overlay
+     * @param overlaySprite     sprite to use as the overlay
+     * @param metadata          overlay metadata for the base sprite
+     */
+    public ResolvedOverlay(TextureAtlasSprite baseSprite, TextureAtlasSprite overlaySprite, OverlayMetadata metadata) {
+        BASE_SPRITE = requireNonNull(baseSprite, "Base sprite cannot be null");
+        OVERLAY_SPRITE = requireNonNull(overlaySprite, "Overlay sprite cannot be null");
+        requireNonNull(metadata, "Metadata cannot be null");
+        IS_EMISSIVE = metadata.isEmissive();
+        TRANSPARENCY_MODE = metadata.transparencyMode();
+        UV_REMAP = UvRemap.between(baseSprite, overlaySprite);
+    }
+
+    /**
+     * Gets the sprite that has the overlay.
+     * @return base sprite
+     */
+    public TextureAtlasSprite baseSprite() {
+        return BASE_SPRITE;
+    }
+
+    /**
+     * Gets the sprite to use as the overlay.
+     * @return overlay sprite
+     */
+    public TextureAtlasSprite overlaySprite() {
+        return OVERLAY_SPRITE;
+    }
+
+    /**
+     * Gets whether the overlay should be emissive.
+     * @return whether the overlay should be emissive
+     */
+    public boolean isEmissive() {
+        return IS_EMISSIVE;
+    }
+
+    /**
+     * Gets the transparency mode of the overlay.
+     * @return transparency mode of the overlay
+     */
+    public TransparencyMode transparencyMode() {
+        return TRANSPARENCY_MODE;
+    }
+
+    /**
+     * Gets the remap from coordinates in the base sprite to the same location in the overlay sprite.
+     * @return remap from the base sprite to the overlay sprite
+     */
+    public UvRemap uvRemap() {
+        return UV_REMAP;
+    }
+
+}
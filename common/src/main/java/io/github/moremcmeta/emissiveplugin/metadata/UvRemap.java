@@ -0,0 +1,87 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.metadata;
+
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Moves atlas coordinates in one sprite to the same location in another sprite. The scale and offset for each
+ * axis are computed once, so remapping a coordinate is a single multiply-add.
+ * @author soir20
+ */
+public final class UvRemap {
+    private final float SCALE_U;
+    private final float OFFSET_U;
+    private final float SCALE_V;
+    private final float OFFSET_V;
+
+    /**
+     * Creates a remap from one sprite to another.
+     * @param fromSprite    sprite containing the original coordinates
+     * @param toSprite      sprite to move coordinates into
+     * @return remap between the two sprites
+     */
+    public static UvRemap between(TextureAtlasSprite fromSprite, TextureAtlasSprite toSprite) {
+        requireNonNull(fromSprite, "From sprite cannot be null");
+        requireNonNull(toSprite, "To sprite cannot be null");
+
+        float scaleU = (toSprite.getU1() - toSprite.getU0()) / (fromSprite.getU1() - fromSprite.getU0());
+        float scaleV = (toSprite.getV1() - toSprite.getV0()) / (fromSprite.getV1() - fromSprite.getV0());
+        return new UvRemap(
+                scaleU,
+                toSprite.getU0() - fromSprite.getU0() * scaleU,
+                scaleV,
+                toSprite.getV0() - fromSprite.getV0() * scaleV
+        );
+    }
+
+    /**
+     * Moves a u-coordinate in the original sprite to the other sprite.
+     * @param u     u-coordinate in the original sprite
+     * @return equivalent u-coordinate in the other sprite
+     */
+    public float remapU(float u) {
+        return u * SCALE_U + OFFSET_U;
+    }
+
+    /**
+     * Moves a v-coordinate in the original sprite to the other sprite.
+     * @param v     v-coordinate in the original sprite
+     * @return equivalent v-coordinate in the other sprite
+     */
+    public float remapV(float v) {
+        return v * SCALE_V + OFFSET_V;
+    }
+
+    /**
+     * Creates a new remap.
+     * @param scaleU        scale for u-coordinates
+     * @param offsetU       offset for u-coordinates after scaling
+     * @param scaleV        scale for v-coordinates
+     * @param offsetV       offset for v-coordinates after scaling
+     */
+    private UvRemap(float scaleU, float offsetU, float scaleV, float offsetV) {
+        SCALE_U = scaleU;
+        OFFSET_U = offsetU;
+        SCALE_V = scaleV;
+        OFFSET_V = offsetV;
+    }
+
+}
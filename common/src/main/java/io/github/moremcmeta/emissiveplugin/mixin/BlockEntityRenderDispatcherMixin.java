@@ -18,7 +18,6 @@
 package io.github.moremcmeta.emissiveplugin.mixin;
 
 import io.github.moremcmeta.emissiveplugin.render.EntityRenderingState;
-import io.github.moremcmeta.emissiveplugin.render.WrappedBufferSource;
 import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.client.renderer.blockentity.BlockEntityRenderDispatcher;
 import org.spongepowered.asm.mixin.Mixin;
@@ -45,11 +44,7 @@ public final class BlockEntityRenderDispatcherMixin {
     @ModifyVariable(method = "setupAndRender(Lnet/minecraft/client/renderer/blockentity/BlockEntityRenderer;Lnet/minecraft/world/level/block/entity/BlockEntity;FLcom/mojang/blaze3d/vertex/PoseStack;Lnet/minecraft/client/renderer/MultiBufferSource;)V",
             at = @At(value = "HEAD"))
     private static MultiBufferSource moremcmeta_emissive_wrapBufferSource(MultiBufferSource bufferSource) {
-        EntityRenderingState.currentBufferSource.set(bufferSource);
-        return WrappedBufferSource.wrap(bufferSource, (renderType) -> {
-            EntityRenderingState.currentRenderType.set(renderType);
-            EntityRenderingState.isBlockEntity.set(true);
-        });
+        return EntityRenderingState.forCurrentThread().startRender(bufferSource, true);
     }
 
     /**
@@ -59,8 +54,7 @@ public final class BlockEntityRenderDispatcherMixin {
     @Inject(method = "setupAndRender(Lnet/minecraft/client/renderer/blockentity/BlockEntityRenderer;Lnet/minecraft/world/level/block/entity/BlockEntity;FLcom/mojang/blaze3d/vertex/PoseStack;Lnet/minecraft/client/renderer/MultiBufferSource;)V",
             at = @At(value = "RETURN"))
     private static void moremcmeta_emissive_onReturn(CallbackInfo callbackInfo) {
-        EntityRenderingState.currentBufferSource.remove();
-        EntityRenderingState.currentRenderType.remove();
+        EntityRenderingState.forCurrentThread().finishRender();
     }
 
     /**
@@ -18,7 +18,6 @@
 package io.github.moremcmeta.emissiveplugin.mixin;
 
 import io.github.moremcmeta.emissiveplugin.render.EntityRenderingState;
-import io.github.moremcmeta.emissiveplugin.render.WrappedBufferSource;
 import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.client.renderer.entity.EntityRenderDispatcher;
 import org.spongepowered.asm.mixin.Mixin;
@@ -47,11 +46,7 @@ public final class EntityRenderDispatcherMixin {
                     target = "Lcom/mojang/blaze3d/vertex/PoseStack;pushPose()V",
                     shift = At.Shift.AFTER))
     private MultiBufferSource moremcmeta_emissive_wrapBufferSource(MultiBufferSource bufferSource) {
-        EntityRenderingState.currentBufferSource.set(bufferSource);
-        return WrappedBufferSource.wrap(bufferSource, (renderType) -> {
-            EntityRenderingState.currentRenderType.set(renderType);
-            EntityRenderingState.isBlockEntity.set(false);
-        });
+        return EntityRenderingState.forCurrentThread().startRender(bufferSource, false);
     }
 
     /**
@@ -60,8 +55,7 @@ public final class EntityRenderDispatcherMixin {
      */
     @Inject(method = "render", at = @At(value = "RETURN"))
     private void moremcmeta_emissive_onReturn(CallbackInfo callbackInfo) {
-        EntityRenderingState.currentBufferSource.remove();
-        EntityRenderingState.currentRenderType.remove();
+        EntityRenderingState.forCurrentThread().finishRender();
     }
 
 }
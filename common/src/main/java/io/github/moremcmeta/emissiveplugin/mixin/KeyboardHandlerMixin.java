@@ -0,0 +1,79 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.mixin;
+
+import com.mojang.blaze3d.platform.InputConstants;
+import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.emissiveplugin.texture.OverlayHotReloader;
+import net.minecraft.client.KeyboardHandler;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.screens.Screen;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Reloads only overlay textures when F3 + Shift + T is pressed, instead of reloading all resources.
+ * @author soir20
+ */
+@SuppressWarnings("unused")
+@Mixin(KeyboardHandler.class)
+public final class KeyboardHandlerMixin {
+    @Unique
+    private static final Logger LOGGER = LogManager.getLogger();
+    @Unique
+    private static final String RELOAD_MESSAGE_KEY = "debug." + ModConstants.MOD_ID + ".reload_overlays.message";
+    @Shadow
+    @Final
+    private Minecraft minecraft;
+
+    /**
+     * Shows a translated debug message in chat, the same way as vanilla debug keys.
+     * @param key       translation key of the message
+     * @param args      arguments for the message
+     */
+    @Shadow
+    private void debugFeedbackTranslated(String key, Object... args) {}
+
+    /**
+     * Starts an overlay reload if Shift is held while the resource reload debug key is pressed.
+     * @param key                   key pressed along with F3
+     * @param callbackInfo          callback info from Mixin
+     */
+    @Inject(method = "handleDebugKeys", at = @At(value = "HEAD"), cancellable = true)
+    private void moremcmeta_emissive_onDebugKey(int key, CallbackInfoReturnable<Boolean> callbackInfo) {
+        if (key != InputConstants.KEY_T || !Screen.hasShiftDown()) {
+            return;
+        }
+
+        debugFeedbackTranslated(RELOAD_MESSAGE_KEY);
+        OverlayHotReloader.reloadOverlays().exceptionally((err) -> {
+            LOGGER.error("Unable to reload overlays in place, so all resources will be reloaded", err);
+            minecraft.execute(minecraft::reloadResourcePacks);
+            return null;
+        });
+        callbackInfo.setReturnValue(true);
+    }
+
+}
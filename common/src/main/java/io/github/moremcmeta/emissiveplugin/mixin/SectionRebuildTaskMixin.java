@@ -23,7 +23,12 @@ import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexConsumer;
 import com.mojang.blaze3d.vertex.VertexFormat;
 import io.github.moremcmeta.emissiveplugin.fabricapi.SpriteFinder;
+import io.github.moremcmeta.emissiveplugin.jfr.SectionOverlayEvent;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteIndex;
 import io.github.moremcmeta.emissiveplugin.mixinaccess.SpriteFinderSupplier;
+import io.github.moremcmeta.emissiveplugin.render.CapturingVertexConsumer;
+import io.github.moremcmeta.emissiveplugin.render.FluidOverlayClassifier;
+import io.github.moremcmeta.emissiveplugin.render.OverlayStatistics;
 import io.github.moremcmeta.emissiveplugin.render.OverlayVertexConsumer;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.RenderType;
@@ -35,10 +40,13 @@ import net.minecraft.client.renderer.chunk.VisGraph;
 import net.minecraft.client.renderer.texture.TextureAtlas;
 import net.minecraft.core.BlockPos;
 import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.BlockAndTintGetter;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.material.FluidState;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.ModifyArg;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.spongepowered.asm.mixin.injection.callback.LocalCapture;
 
@@ -46,7 +54,9 @@ import java.util.Iterator;
 import java.util.Set;
 
 /**
- * Renders overlay quads in the translucent layer after the base fluid was rendered.
+ * Renders overlay quads in the translucent layer after the base fluid was rendered. The base fluid's vertices
+ * are captured while it is rendered, so overlay quads are created from the captured vertices instead of
+ * rendering the fluid a second time.
  * @author soir20
  */
 @SuppressWarnings("unused")
@@ -54,7 +64,67 @@ import java.util.Set;
 public final class SectionRebuildTaskMixin {
 
     /**
-     * Renders overlay quads in the translucent layer after the base fluid was rendered.
+     * Starts recording overlay statistics for a section.
+     * @param x                     player's x-coordinate
+     * @param y                     player's y-coordinate
+     * @param z                     player's z-coordinate
+     * @param bufferPack            buffers by render type
+     * @param callbackInfo          callback info from Mixin
+     */
+    @Inject(method = "compile", at = @At("HEAD"))
+    private void moremcmeta_emissive_onCompileStart(
+            float x, float y, float z, SectionBufferBuilderPack bufferPack,
+            CallbackInfoReturnable<SectionRenderDispatcher.RenderSection.RebuildTask.CompileResults> callbackInfo) {
+        OverlayStatistics.beginSection();
+        SectionOverlayEvent.beginSection();
+
+        // Never replay a capture left over from a rebuild that failed on this thread
+        CapturingVertexConsumer.forCurrentThread().end();
+    }
+
+    /**
+     * Finishes recording overlay statistics for a section.
+     * @param x                     player's x-coordinate
+     * @param y                     player's y-coordinate
+     * @param z                     player's z-coordinate
+     * @param bufferPack            buffers by render type
+     * @param callbackInfo          callback info from Mixin
+     */
+    @Inject(method = "compile", at = @At("RETURN"))
+    private void moremcmeta_emissive_onCompileEnd(
+            float x, float y, float z, SectionBufferBuilderPack bufferPack,
+            CallbackInfoReturnable<SectionRenderDispatcher.RenderSection.RebuildTask.CompileResults> callbackInfo) {
+        OverlayStatistics.endSection();
+        SectionOverlayEvent.endSection();
+    }
+
+    /**
+     * Captures the vertices of fluids that have an overlay while they are rendered.
+     * @param pos               position of the fluid being rendered
+     * @param level             region being rendered
+     * @param buffer            buffer for the fluid's render type
+     * @param state             block state of the fluid being rendered
+     * @param fluidState        fluid being rendered
+     * @return buffer that captures the fluid's vertices or the original buffer if the fluid has no overlay
+     */
+    @ModifyArg(method = "compile",
+            at = @At(value = "INVOKE", target = "Lnet/minecraft/client/renderer/block/BlockRenderDispatcher;" +
+                    "renderLiquid(Lnet/minecraft/core/BlockPos;Lnet/minecraft/world/level/BlockAndTintGetter;" +
+                    "Lcom/mojang/blaze3d/vertex/VertexConsumer;Lnet/minecraft/world/level/block/state/BlockState;" +
+                    "Lnet/minecraft/world/level/material/FluidState;)V"),
+            index = 2)
+    private VertexConsumer moremcmeta_emissive_captureLiquid(BlockPos pos, BlockAndTintGetter level,
+                                                             VertexConsumer buffer, BlockState state,
+                                                             FluidState fluidState) {
+        if (!FluidOverlayClassifier.hasOverlay(fluidState)) {
+            return buffer;
+        }
+
+        return CapturingVertexConsumer.forCurrentThread().begin(buffer);
+    }
+
+    /**
+     * Renders overlay quads in the translucent layer from the captured vertices of the base fluid.
      * @param x                     player's x-coordinate
      * @param y                     player's y-coordinate
      * @param z                     player's z-coordinate
@@ -88,6 +158,24 @@ public final class SectionRebuildTaskMixin {
             PoseStack poseStack, Set<RenderType> startedRenderTypes, RandomSource randomSource,
             BlockRenderDispatcher blockRenderDispatcher, Iterator<BlockPos> posIterator, BlockPos currentPos,
             BlockState state) {
+
+        /* Most fluids, including plain water, have no overlay and were not captured. Checking the capture instead of
+           classifying the fluid again keeps this consistent with the decision made before the fluid was rendered,
+           even if the classifier is cleared by a reload in between. */
+        CapturingVertexConsumer capture = CapturingVertexConsumer.forCurrentThread();
+        if (!capture.isCapturing()) {
+            return;
+        }
+
+        boolean isTimed = OverlayStatistics.isEnabled() || SectionOverlayEvent.isRecording();
+        long startTime = isTimed ? System.nanoTime() : 0;
+        capture.end();
+
+        // Fluids surrounded by other blocks have no visible faces
+        if (capture.vertexCount() == 0) {
+            return;
+        }
+
         RenderType renderType = RenderType.translucent();
         BufferBuilder bufferBuilder = bufferPack.builder(renderType);
         if (startedRenderTypes.add(renderType)) {
@@ -95,10 +183,21 @@ public final class SectionRebuildTaskMixin {
         }
 
         TextureAtlas blockAtlas = Minecraft.getInstance().getModelManager().getAtlas(TextureAtlas.LOCATION_BLOCKS);
-        SpriteFinder spriteFinder = ((SpriteFinderSupplier) blockAtlas).moremcmeta_emissive_spriteFinder();
+        SpriteFinderSupplier finderSupplier = (SpriteFinderSupplier) blockAtlas;
+        SpriteFinder spriteFinder = finderSupplier.moremcmeta_emissive_spriteFinder();
+        OverlaySpriteIndex overlayIndex = finderSupplier.moremcmeta_emissive_overlayIndex();
+
+        VertexConsumer wrappedBuffer = OverlayVertexConsumer.forCurrentThread(spriteFinder, overlayIndex, bufferBuilder);
+        capture.replay(wrappedBuffer, false);
 
-        VertexConsumer wrappedBuffer = new OverlayVertexConsumer(spriteFinder, bufferBuilder);
-        blockRenderDispatcher.renderLiquid(currentPos, renderChunkRegion, wrappedBuffer, state, state.getFluidState());
+        if (isTimed) {
+            long duration = System.nanoTime() - startTime;
+            if (OverlayStatistics.isEnabled()) {
+                OverlayStatistics.recordFluidPass(renderType, capture.vertexCount() / 4, duration);
+            }
+
+            SectionOverlayEvent.recordFluidPass(capture.vertexCount() / 4, duration);
+        }
     }
 
 }
@@ -19,9 +19,13 @@ package io.github.moremcmeta.emissiveplugin.mixin;
 
 import com.mojang.blaze3d.platform.NativeImage;
 import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.emissiveplugin.jfr.OverlaySpriteLoadEvent;
 import io.github.moremcmeta.emissiveplugin.metadata.OverlayMetadata;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteNames;
+import io.github.moremcmeta.emissiveplugin.texture.OverlayHotReloader;
 import io.github.moremcmeta.moremcmeta.api.client.metadata.MetadataRegistry;
 import io.github.moremcmeta.moremcmeta.api.client.texture.SpriteName;
+import net.minecraft.Util;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.texture.SpriteContents;
 import net.minecraft.client.renderer.texture.SpriteLoader;
@@ -34,14 +38,22 @@ import net.minecraft.server.packs.resources.ResourceManager;
 import org.apache.logging.log4j.LogManager;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.ModifyVariable;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -76,50 +88,97 @@ public final class SpriteLoaderMixin {
 
         ResourceManager resourceManager = Minecraft.getInstance().getResourceManager();
 
+        // Models are baked after the block atlas is stitched, so they will check the new snapshot
+        OverlaySpriteNames.capture();
+
+        // Several textures may share an overlay, but each overlay should only be stitched once
+        Set<ResourceLocation> overlaySpriteNames = new LinkedHashSet<>();
+        Map<ResourceLocation, OverlayMetadata> baseMetadata = new HashMap<>();
         MetadataRegistry.INSTANCE.metadataByPlugin(ModConstants.MOD_ID).forEach(
                 (textureLocation, metadata) -> {
                     OverlayMetadata overlayMetadata = (OverlayMetadata) metadata;
-                    if (spriteTextures.contains(overlayMetadata.overlaySpriteName())) {
-                        return;
-                    }
+                    baseMetadata.put(textureLocation, overlayMetadata);
 
-                    ResourceLocation overlayTexturePath = SpriteName.toTexturePath(overlayMetadata.overlaySpriteName());
-                    Optional<Resource> resource = resourceManager.getResource(
-                            overlayTexturePath
-                    );
-
-                    resource.ifPresent((rsc) -> {
-                        try {
-                            AnimationMetadataSection animationMetadata = rsc.metadata()
-                                    .getSection(AnimationMetadataSection.SERIALIZER)
-                                    .orElse(AnimationMetadataSection.EMPTY);
-                            NativeImage spriteImage = NativeImage.read(rsc.open());
-
-                            FrameSize frameSize = animationMetadata.calculateFrameSize(
-                                    spriteImage.getWidth(),
-                                    spriteImage.getHeight()
-                            );
-
-                            sprites.add(
-                                    new SpriteContents(
-                                            overlayMetadata.overlaySpriteName(),
-                                            frameSize,
-                                            spriteImage,
-                                            rsc.metadata()
-                                    )
-                            );
-                        } catch (IOException err) {
-                            LogManager.getLogger().error(
-                                    "Unable to read texture {} while stitching it to the block atlas: {}",
-                                    overlayTexturePath,
-                                    err
-                            );
-                        }
-                    });
+                    ResourceLocation overlaySpriteName = overlayMetadata.overlaySpriteName();
+                    if (!spriteTextures.contains(overlaySpriteName)) {
+                        overlaySpriteNames.add(overlaySpriteName);
+                    }
                 }
         );
 
+        // Decode overlays in parallel, but add them in a consistent order
+        Map<ResourceLocation, OverlayHotReloader.OverlayLayout> layouts = new ConcurrentHashMap<>();
+        List<CompletableFuture<Optional<SpriteContents>>> overlaySprites = overlaySpriteNames.stream()
+                .map((overlaySpriteName) -> CompletableFuture.supplyAsync(
+                        () -> moremcmeta_emissive_loadOverlay(resourceManager, overlaySpriteName, layouts),
+                        Util.backgroundExecutor()
+                ))
+                .toList();
+        overlaySprites.forEach((overlaySprite) -> overlaySprite.join().ifPresent(sprites::add));
+        OverlayHotReloader.stage(baseMetadata, layouts);
+
         return sprites;
     }
 
+    /**
+     * Reads an overlay texture as a sprite.
+     * @param resourceManager       resource manager to read the texture from
+     * @param overlaySpriteName     name of the overlay as a sprite
+     * @param layouts               layout of the overlay is added to this map if it is read
+     * @return overlay sprite or empty if the texture is missing or could not be read
+     */
+    @Unique
+    private static Optional<SpriteContents> moremcmeta_emissive_loadOverlay(
+            ResourceManager resourceManager, ResourceLocation overlaySpriteName,
+            Map<ResourceLocation, OverlayHotReloader.OverlayLayout> layouts) {
+        ResourceLocation overlayTexturePath = SpriteName.toTexturePath(overlaySpriteName);
+        OverlaySpriteLoadEvent event = new OverlaySpriteLoadEvent();
+        event.begin();
+
+        Optional<Resource> resource = resourceManager.getResource(overlayTexturePath);
+        if (resource.isEmpty()) {
+            event.finish(overlayTexturePath, 0, 0, 0, false);
+            return Optional.empty();
+        }
+
+        Resource rsc = resource.get();
+        int encodedBytes = 0;
+        try (InputStream stream = rsc.open()) {
+            AnimationMetadataSection animationMetadata = rsc.metadata()
+                    .getSection(AnimationMetadataSection.SERIALIZER)
+                    .orElse(AnimationMetadataSection.EMPTY);
+            byte[] encoded = stream.readAllBytes();
+            encodedBytes = encoded.length;
+            NativeImage spriteImage = NativeImage.read(new ByteArrayInputStream(encoded));
+            layouts.put(overlaySpriteName, new OverlayHotReloader.OverlayLayout(
+                    animationMetadata,
+                    spriteImage.getWidth(),
+                    spriteImage.getHeight()
+            ));
+
+            FrameSize frameSize = animationMetadata.calculateFrameSize(
+                    spriteImage.getWidth(),
+                    spriteImage.getHeight()
+            );
+
+            event.finish(overlayTexturePath, encodedBytes, spriteImage.getWidth(), spriteImage.getHeight(), true);
+            return Optional.of(
+                    new SpriteContents(
+                            overlaySpriteName,
+                            frameSize,
+                            spriteImage,
+                            rsc.metadata()
+                    )
+            );
+        } catch (IOException err) {
+            event.finish(overlayTexturePath, encodedBytes, 0, 0, false);
+            LogManager.getLogger().error(
+                    "Unable to read texture {} while stitching it to the block atlas: {}",
+                    overlayTexturePath,
+                    err
+            );
+            return Optional.empty();
+        }
+    }
+
 }
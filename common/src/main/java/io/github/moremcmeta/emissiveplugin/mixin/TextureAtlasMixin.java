@@ -17,7 +17,10 @@
 
 package io.github.moremcmeta.emissiveplugin.mixin;
 
+import io.github.moremcmeta.emissiveplugin.OverlayReloadListeners;
 import io.github.moremcmeta.emissiveplugin.fabricapi.SpriteFinder;
+import io.github.moremcmeta.emissiveplugin.jfr.SpriteFinderRebuildEvent;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteIndex;
 import io.github.moremcmeta.emissiveplugin.mixinaccess.SpriteFinderSupplier;
 import net.minecraft.client.renderer.texture.TextureAtlas;
 import org.spongepowered.asm.mixin.Mixin;
@@ -27,7 +30,8 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 /**
- * Updates the {@link SpriteFinder} when the texture atlas reloads.
+ * Updates the {@link SpriteFinder} and {@link OverlaySpriteIndex} when the texture atlas reloads and notifies
+ * {@link OverlayReloadListeners} when the block atlas reloads.
  * @author soir20
  */
 @SuppressWarnings("unused")
@@ -35,14 +39,26 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 public final class TextureAtlasMixin implements SpriteFinderSupplier {
     @Unique
     private SpriteFinder spriteFinder;
+    @Unique
+    private OverlaySpriteIndex overlayIndex = OverlaySpriteIndex.EMPTY;
 
     /**
-     * Updates the sprite finder when the texture atlas reloads sprites.
+     * Updates the sprite finder and overlay index when the texture atlas reloads sprites.
      * @param callbackInfo      callback info from Mixin
      */
     @Inject(method = "upload(Lnet/minecraft/client/renderer/texture/SpriteLoader$Preparations;)V", at = @At(value = "RETURN"))
     public void moremcmeta_emissive_onReload(CallbackInfo callbackInfo) {
-        spriteFinder = new SpriteFinder((TextureAtlas) (Object) this);
+        TextureAtlas atlas = (TextureAtlas) (Object) this;
+        SpriteFinderRebuildEvent event = new SpriteFinderRebuildEvent();
+        event.begin();
+
+        spriteFinder = new SpriteFinder(atlas);
+        overlayIndex = OverlaySpriteIndex.build(atlas);
+        event.finish(atlas.location(), spriteFinder.spriteCount(), overlayIndex.size());
+
+        if (atlas.location().equals(TextureAtlas.LOCATION_BLOCKS)) {
+            OverlayReloadListeners.onBlockAtlasReload();
+        }
     }
 
     @Unique
@@ -50,4 +66,10 @@ public final class TextureAtlasMixin implements SpriteFinderSupplier {
     public SpriteFinder moremcmeta_emissive_spriteFinder() {
         return spriteFinder;
     }
+
+    @Unique
+    @Override
+    public OverlaySpriteIndex moremcmeta_emissive_overlayIndex() {
+        return overlayIndex;
+    }
 }
@@ -18,9 +18,10 @@
 package io.github.moremcmeta.emissiveplugin.mixinaccess;
 
 import io.github.moremcmeta.emissiveplugin.fabricapi.SpriteFinder;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteIndex;
 
 /**
- * Retrieves {@link SpriteFinder}s.
+ * Retrieves {@link SpriteFinder}s and {@link OverlaySpriteIndex}es.
  * @author soir20
  */
 public interface SpriteFinderSupplier {
@@ -31,4 +32,10 @@ public interface SpriteFinderSupplier {
      */
     SpriteFinder moremcmeta_emissive_spriteFinder();
 
+    /**
+     * Gets an index of the overlays for sprites.
+     * @return overlay index
+     */
+    OverlaySpriteIndex moremcmeta_emissive_overlayIndex();
+
 }
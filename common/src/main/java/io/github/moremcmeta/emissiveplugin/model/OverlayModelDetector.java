@@ -0,0 +1,147 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.emissiveplugin.OverlayReloadListeners;
+import net.minecraft.client.renderer.block.model.BlockModel;
+import net.minecraft.client.renderer.block.model.MultiVariant;
+import net.minecraft.client.renderer.block.model.Variant;
+import net.minecraft.client.renderer.block.model.multipart.MultiPart;
+import net.minecraft.client.resources.model.Material;
+import net.minecraft.client.resources.model.UnbakedModel;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decides whether unbaked models need to be wrapped with an overlay model when they are baked. Results are
+ * memoized for each model, and the texture keys of each parent model are memoized as well, so that parents
+ * shared by many models, such as <code>block/cube_all</code>, are only walked once. Models are compared by
+ * identity and held weakly, so models from a previous reload are never matched and do not stay in memory.
+ * @author soir20
+ */
+public final class OverlayModelDetector {
+    private static final Map<UnbakedModel, Boolean> USES_OVERLAY = new MapMaker().weakKeys().makeMap();
+    private static final Map<BlockModel, Set<String>> TEXTURE_KEYS = new MapMaker().weakKeys().makeMap();
+    static {
+        OverlayReloadListeners.register(() -> {
+            USES_OVERLAY.clear();
+            TEXTURE_KEYS.clear();
+        });
+    }
+
+    /**
+     * Checks whether a model needs to be wrapped with an overlay model.
+     * @param model             model to check
+     * @param modelGetter       retrieves other unbaked models by location
+     * @return whether the model needs to be wrapped with an overlay model
+     */
+    public static boolean usesOverlay(UnbakedModel model, Function<ResourceLocation, UnbakedModel> modelGetter) {
+        requireNonNull(model, "Model cannot be null");
+        requireNonNull(modelGetter, "Model getter cannot be null");
+
+        Boolean usesOverlay = USES_OVERLAY.get(model);
+        if (usesOverlay != null) {
+            return usesOverlay;
+        }
+
+        // Not computeIfAbsent, since multipart and multi-variant models check their children recursively
+        usesOverlay = computeUsesOverlay(model, modelGetter);
+        USES_OVERLAY.put(model, usesOverlay);
+        return usesOverlay;
+    }
+
+    /**
+     * Checks whether a model needs to be wrapped with an overlay model without using memoized results for
+     * the model itself.
+     * @param model             model to check
+     * @param modelGetter       retrieves other unbaked models by location
+     * @return whether the model needs to be wrapped with an overlay model
+     */
+    private static boolean computeUsesOverlay(UnbakedModel model,
+                                              Function<ResourceLocation, UnbakedModel> modelGetter) {
+
+        // Filter out block models for which we can check materials to improve performance
+        if (model instanceof BlockModel blockModel) {
+            Set<String> textureKeys = textureKeys(blockModel);
+            Set<Material> materials = new HashSet<>(textureKeys.size());
+            for (String textureKey : textureKeys) {
+                materials.add(blockModel.getMaterial(textureKey));
+            }
+
+            return ModConstants.USES_OVERLAY.test(materials);
+        }
+
+        if (model instanceof MultiPart multiPartModel) {
+            for (MultiVariant part : multiPartModel.getMultiVariants()) {
+                if (usesOverlay(part, modelGetter)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        if (model instanceof MultiVariant multiVariantModel) {
+            for (Variant variant : multiVariantModel.getVariants()) {
+                if (usesOverlay(modelGetter.apply(variant.getModelLocation()), modelGetter)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets all texture keys for a given model.
+     * @param model     model to retrieve texture keys for
+     * @return all texture keys in this model and its parent models
+     */
+    private static Set<String> textureKeys(BlockModel model) {
+        Set<String> textureKeys = TEXTURE_KEYS.get(model);
+        if (textureKeys != null) {
+            return textureKeys;
+        }
+
+        if (model.parent == null) {
+            textureKeys = ImmutableSet.copyOf(model.textureMap.keySet());
+        } else if (model.textureMap.isEmpty()) {
+            textureKeys = textureKeys(model.parent);
+        } else {
+            textureKeys = ImmutableSet.<String>builder()
+                    .addAll(textureKeys(model.parent))
+                    .addAll(model.textureMap.keySet())
+                    .build();
+        }
+
+        TEXTURE_KEYS.put(model, textureKeys);
+        return textureKeys;
+    }
+
+}
@@ -17,10 +17,10 @@
 
 package io.github.moremcmeta.emissiveplugin.model;
 
-import io.github.moremcmeta.emissiveplugin.ModConstants;
-import io.github.moremcmeta.emissiveplugin.metadata.OverlayMetadata;
-import io.github.moremcmeta.moremcmeta.api.client.metadata.AnalyzedMetadata;
-import io.github.moremcmeta.moremcmeta.api.client.metadata.MetadataRegistry;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteIndex;
+import io.github.moremcmeta.emissiveplugin.metadata.ResolvedOverlay;
+import io.github.moremcmeta.emissiveplugin.metadata.UvRemap;
+import io.github.moremcmeta.emissiveplugin.mixinaccess.SpriteFinderSupplier;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.LightTexture;
 import net.minecraft.client.renderer.block.model.BakedQuad;
@@ -29,10 +29,11 @@ import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.client.resources.model.ModelManager;
 import net.minecraft.util.Mth;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
-import java.util.stream.Stream;
+import java.util.function.Supplier;
 
 import static io.github.moremcmeta.emissiveplugin.ModConstants.X_OFFSETS;
 import static io.github.moremcmeta.emissiveplugin.ModConstants.Y_OFFSETS;
@@ -46,8 +47,8 @@ import static java.util.Objects.requireNonNull;
  */
 public final class OverlayQuadFunction implements Function<List<BakedQuad>, List<OverlayBakedQuad>> {
 
-    private final ModelManager MODEL_MANAGER;
     private final OverlayBakedQuad.Builder QUAD_BUILDER;
+    private final Supplier<OverlaySpriteIndex> OVERLAY_INDEX;
 
     /**
      * Given a coordinate in the old sprite, recomputes that coordinate to be in the same location in the
@@ -58,7 +59,9 @@ public final class OverlayQuadFunction implements Function<List<BakedQuad>, List
      * @param getCoord0     retrieves the first coordinate (u or v) of a sprite
      * @param getCoord1     retrieves the second coordinate (u or v) of a sprite
      * @return recomputed coordinate for the new sprite
+     * @deprecated use a {@link UvRemap} computed once for both sprites instead
      */
+    @Deprecated
     public static float recomputeSpriteCoordinate(float coord, TextureAtlasSprite oldSprite,
                                                   TextureAtlasSprite newSprite,
                                                   Function<TextureAtlasSprite, Float> getCoord0,
@@ -70,63 +73,72 @@ public final class OverlayQuadFunction implements Function<List<BakedQuad>, List
     }
 
     /**
-     * Creates a new quad function.
+     * Creates a new quad function that finds overlays in the current block atlas.
      * @param quadBuilder       builds overlay quads returned by this function
      */
     public OverlayQuadFunction(OverlayBakedQuad.Builder quadBuilder) {
-        MODEL_MANAGER = Minecraft.getInstance().getModelManager();
+        this(quadBuilder, blockAtlasIndex(Minecraft.getInstance().getModelManager()));
+    }
+
+    /**
+     * Creates a new quad function.
+     * @param quadBuilder       builds overlay quads returned by this function
+     * @param overlayIndex      supplies the overlay index to use each time the function is applied
+     */
+    public OverlayQuadFunction(OverlayBakedQuad.Builder quadBuilder, Supplier<OverlaySpriteIndex> overlayIndex) {
         QUAD_BUILDER = requireNonNull(quadBuilder, "Quad builder cannot be null");
+        OVERLAY_INDEX = requireNonNull(overlayIndex, "Overlay index supplier cannot be null");
     }
 
     @Override
     public List<OverlayBakedQuad> apply(List<BakedQuad> quads) {
-        return quads.stream()
-                .flatMap(
-                        (quad) -> {
-                            Optional<AnalyzedMetadata> metadataOptional = MetadataRegistry.INSTANCE
-                                    .metadataFromSpriteName(ModConstants.MOD_ID, quad.getSprite().contents().name());
-                            if (metadataOptional.isEmpty()) {
-                                return Stream.of();
-                            }
-
-                            OverlayMetadata metadata = (OverlayMetadata) metadataOptional.get();
-                            TextureAtlasSprite sprite = MODEL_MANAGER
-                                    .getAtlas(TextureAtlas.LOCATION_BLOCKS)
-                                    .getSprite(metadata.overlaySpriteName());
-
-                            /* We have to cast because Minecraft's BakedModel interface expects a List<BakedQuad>,
-                               not List<? extends BakedQuad>. */
-                            return Stream.of(QUAD_BUILDER.build(
-                                    makeOverlayVertexData(
-                                            quad.getVertices(),
-                                            quad.getDirection().ordinal(),
-                                            sprite,
-                                            quad.getSprite(),
-                                            metadata.isEmissive()
-                                    ),
-                                    quad.getTintIndex(),
-                                    quad.getDirection(),
-                                    sprite,
-                                    metadata.isEmissive(),
-                                    metadata.transparencyMode()
-                            ));
-
-                        }
-                )
-                .toList();
+        OverlaySpriteIndex overlayIndex = OVERLAY_INDEX.get();
+        List<OverlayBakedQuad> overlayQuads = new ArrayList<>();
+
+        for (BakedQuad quad : quads) {
+            Optional<ResolvedOverlay> overlayOptional = overlayIndex.find(quad.getSprite());
+            if (overlayOptional.isEmpty()) {
+                continue;
+            }
+
+            ResolvedOverlay overlay = overlayOptional.get();
+            overlayQuads.add(QUAD_BUILDER.build(
+                    makeOverlayVertexData(
+                            quad.getVertices(),
+                            quad.getDirection().ordinal(),
+                            overlay.uvRemap(),
+                            overlay.isEmissive()
+                    ),
+                    quad.getTintIndex(),
+                    quad.getDirection(),
+                    overlay.overlaySprite(),
+                    overlay.isEmissive(),
+                    overlay.transparencyMode()
+            ));
+        }
+
+        return overlayQuads;
+    }
+
+    /**
+     * Supplies the overlay index of the current block atlas, which is replaced on every reload.
+     * @param modelManager      model manager with the block atlas
+     * @return supplier of the block atlas's overlay index
+     */
+    private static Supplier<OverlaySpriteIndex> blockAtlasIndex(ModelManager modelManager) {
+        return () -> ((SpriteFinderSupplier) modelManager.getAtlas(TextureAtlas.LOCATION_BLOCKS))
+                .moremcmeta_emissive_overlayIndex();
     }
 
     /**
      * Recomputes vertex data for overlay quads.
      * @param vertexData        original vertex data
      * @param facing            ordinal of the direction the quad is facing
-     * @param newSprite         sprite that will be used as the overlay
-     * @param oldSprite         sprite that will have an overlay applied
+     * @param uvRemap           remap from the original quad's sprite to the overlay sprite
      * @param emissive          whether the overlay quads should be emissive
      * @return new vertex data for the overlay quads
      */
-    private static int[] makeOverlayVertexData(int[] vertexData, int facing, TextureAtlasSprite newSprite,
-                                               TextureAtlasSprite oldSprite, boolean emissive) {
+    private static int[] makeOverlayVertexData(int[] vertexData, int facing, UvRemap uvRemap, boolean emissive) {
         final int VERTEX_SIZE = 8;
         final int POS_X_OFFSET = 0;
         final int POS_Y_OFFSET = 1;
@@ -149,8 +161,12 @@ public final class OverlayQuadFunction implements Function<List<BakedQuad>, List
             newVertexData[posXOffset] = recomputePos(newVertexData[posXOffset], X_OFFSETS[facing]);
             newVertexData[posYOffset] = recomputePos(newVertexData[posYOffset], Y_OFFSETS[facing]);
             newVertexData[posZOffset] = recomputePos(newVertexData[posZOffset], Z_OFFSETS[facing]);
-            newVertexData[texUOffset] = recomputeSpriteU(newVertexData[texUOffset], oldSprite, newSprite);
-            newVertexData[texVOffset] = recomputeSpriteV(newVertexData[texVOffset], oldSprite, newSprite);
+            newVertexData[texUOffset] = Float.floatToRawIntBits(
+                    uvRemap.remapU(Float.intBitsToFloat(newVertexData[texUOffset]))
+            );
+            newVertexData[texVOffset] = Float.floatToRawIntBits(
+                    uvRemap.remapV(Float.intBitsToFloat(newVertexData[texVOffset]))
+            );
 
             if (emissive) {
                 newVertexData[vertexOffset + LIGHT_OFFSET] = LightTexture.FULL_BRIGHT;
@@ -170,42 +186,4 @@ public final class OverlayQuadFunction implements Function<List<BakedQuad>, List
         return Float.floatToRawIntBits(Float.intBitsToFloat(pos) + offset);
     }
 
-    /**
-     * Computes the new u-coordinate for the overlay sprite.
-     * @param u             u-coordinate in the original sprite
-     * @param oldSprite     sprite that will have an overlay applied
-     * @param newSprite     sprite that will be used as the overlay
-     * @return equivalent u-coordinate for the overlay sprite
-     */
-    private static int recomputeSpriteU(int u, TextureAtlasSprite oldSprite, TextureAtlasSprite newSprite) {
-        return Float.floatToRawIntBits(
-                recomputeSpriteCoordinate(
-                        Float.intBitsToFloat(u),
-                        oldSprite,
-                        newSprite,
-                        TextureAtlasSprite::getU0,
-                        TextureAtlasSprite::getU1
-                )
-        );
-    }
-
-    /**
-     * Computes the new v-coordinate for the overlay sprite.
-     * @param v             v-coordinate in the original sprite
-     * @param oldSprite     sprite that will have an overlay applied
-     * @param newSprite     sprite that will be used as the overlay
-     * @return equivalent v-coordinate for the overlay sprite
-     */
-    private static int recomputeSpriteV(int v, TextureAtlasSprite oldSprite, TextureAtlasSprite newSprite) {
-        return Float.floatToRawIntBits(
-                recomputeSpriteCoordinate(
-                        Float.intBitsToFloat(v),
-                        oldSprite,
-                        newSprite,
-                        TextureAtlasSprite::getV0,
-                        TextureAtlasSprite::getV1
-                )
-        );
-    }
-
 }
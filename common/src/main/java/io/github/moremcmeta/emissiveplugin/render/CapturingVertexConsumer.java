@@ -0,0 +1,269 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.render;
+
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import net.minecraft.MethodsReturnNonnullByDefault;
+import net.minecraft.client.renderer.LightTexture;
+
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Passes all vertices through to a delegate while recording them, so that the same geometry can be replayed
+ * into another buffer without rendering it again. Vertices are recorded into arrays that are reused between
+ * captures on the same thread and only grow when a capture has more vertices than any previous one.
+ * @author soir20
+ */
+@MethodsReturnNonnullByDefault
+public final class CapturingVertexConsumer implements VertexConsumer {
+    private static final ThreadLocal<CapturingVertexConsumer> CONSUMERS = ThreadLocal.withInitial(
+            CapturingVertexConsumer::new
+    );
+    private static final int INITIAL_VERTICES = 256;
+    private static final int FLOATS_PER_VERTEX = 12;
+    private static final int POS_X = 0;
+    private static final int POS_Y = 1;
+    private static final int POS_Z = 2;
+    private static final int RED = 3;
+    private static final int GREEN = 4;
+    private static final int BLUE = 5;
+    private static final int ALPHA = 6;
+    private static final int TEX_U = 7;
+    private static final int TEX_V = 8;
+    private static final int NORMAL_X = 9;
+    private static final int NORMAL_Y = 10;
+    private static final int NORMAL_Z = 11;
+    private static final int INTS_PER_VERTEX = 2;
+    private static final int OVERLAY = 0;
+    private static final int LIGHT = 1;
+    private float[] floatData;
+    private int[] intData;
+    private VertexConsumer delegate;
+    private int vertexCount;
+
+    /**
+     * Gets the capturing buffer for the current thread.
+     * @return capturing buffer for the current thread
+     */
+    public static CapturingVertexConsumer forCurrentThread() {
+        return CONSUMERS.get();
+    }
+
+    /**
+     * Discards all recorded vertices and starts passing vertices through to a new delegate.
+     * @param delegate      delegate buffer to write vertices to
+     * @return this buffer
+     */
+    public VertexConsumer begin(VertexConsumer delegate) {
+        this.delegate = requireNonNull(delegate, "Delegate cannot be null");
+        vertexCount = 0;
+        clearVertex(0);
+        return this;
+    }
+
+    /**
+     * Writes all recorded vertices to another buffer with the same attributes that were originally written.
+     * @param target        buffer to write vertices to
+     * @param isEmissive    whether to replace the recorded light with full brightness
+     */
+    public void replay(VertexConsumer target, boolean isEmissive) {
+        requireNonNull(target, "Target cannot be null");
+
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            int floatOffset = vertex * FLOATS_PER_VERTEX;
+            int intOffset = vertex * INTS_PER_VERTEX;
+            target.vertex(
+                    floatData[floatOffset + POS_X],
+                    floatData[floatOffset + POS_Y],
+                    floatData[floatOffset + POS_Z],
+                    floatData[floatOffset + RED],
+                    floatData[floatOffset + GREEN],
+                    floatData[floatOffset + BLUE],
+                    floatData[floatOffset + ALPHA],
+                    floatData[floatOffset + TEX_U],
+                    floatData[floatOffset + TEX_V],
+                    intData[intOffset + OVERLAY],
+                    isEmissive ? LightTexture.FULL_BRIGHT : intData[intOffset + LIGHT],
+                    floatData[floatOffset + NORMAL_X],
+                    floatData[floatOffset + NORMAL_Y],
+                    floatData[floatOffset + NORMAL_Z]
+            );
+        }
+    }
+
+    /**
+     * Stops passing vertices through to the delegate. Recorded vertices are kept until the next capture begins.
+     */
+    public void end() {
+        delegate = null;
+    }
+
+    /**
+     * Checks whether a capture has begun and not yet ended.
+     * @return whether vertices are currently being captured
+     */
+    public boolean isCapturing() {
+        return delegate != null;
+    }
+
+    /**
+     * Gets the number of vertices recorded since the capture began.
+     * @return number of recorded vertices
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public void vertex(float x, float y, float z, float red, float green, float blue, float alpha, float texU,
+                       float texV, int overlayUV, int lightmapUV, float normalX, float normalY, float normalZ) {
+        delegate.vertex(x, y, z, red, green, blue, alpha, texU, texV, overlayUV, lightmapUV,
+                normalX, normalY, normalZ);
+
+        int floatOffset = vertexCount * FLOATS_PER_VERTEX;
+        int intOffset = vertexCount * INTS_PER_VERTEX;
+        floatData[floatOffset + POS_X] = x;
+        floatData[floatOffset + POS_Y] = y;
+        floatData[floatOffset + POS_Z] = z;
+        floatData[floatOffset + RED] = red;
+        floatData[floatOffset + GREEN] = green;
+        floatData[floatOffset + BLUE] = blue;
+        floatData[floatOffset + ALPHA] = alpha;
+        floatData[floatOffset + TEX_U] = texU;
+        floatData[floatOffset + TEX_V] = texV;
+        floatData[floatOffset + NORMAL_X] = normalX;
+        floatData[floatOffset + NORMAL_Y] = normalY;
+        floatData[floatOffset + NORMAL_Z] = normalZ;
+        intData[intOffset + OVERLAY] = overlayUV;
+        intData[intOffset + LIGHT] = lightmapUV;
+        nextVertex();
+    }
+
+    @Override
+    public VertexConsumer vertex(double x, double y, double z) {
+        delegate.vertex(x, y, z);
+        int floatOffset = vertexCount * FLOATS_PER_VERTEX;
+        floatData[floatOffset + POS_X] = (float) x;
+        floatData[floatOffset + POS_Y] = (float) y;
+        floatData[floatOffset + POS_Z] = (float) z;
+        return this;
+    }
+
+    @Override
+    public VertexConsumer color(int red, int green, int blue, int alpha) {
+        delegate.color(red, green, blue, alpha);
+        int floatOffset = vertexCount * FLOATS_PER_VERTEX;
+        floatData[floatOffset + RED] = red / 255f;
+        floatData[floatOffset + GREEN] = green / 255f;
+        floatData[floatOffset + BLUE] = blue / 255f;
+        floatData[floatOffset + ALPHA] = alpha / 255f;
+        return this;
+    }
+
+    @Override
+    public VertexConsumer uv(float u, float v) {
+        delegate.uv(u, v);
+        int floatOffset = vertexCount * FLOATS_PER_VERTEX;
+        floatData[floatOffset + TEX_U] = u;
+        floatData[floatOffset + TEX_V] = v;
+        return this;
+    }
+
+    @Override
+    public VertexConsumer overlayCoords(int u, int v) {
+        delegate.overlayCoords(u, v);
+        intData[vertexCount * INTS_PER_VERTEX + OVERLAY] = u & 0xFFFF | v << 16;
+        return this;
+    }
+
+    @Override
+    public VertexConsumer uv2(int u, int v) {
+        delegate.uv2(u, v);
+        intData[vertexCount * INTS_PER_VERTEX + LIGHT] = u & 0xFFFF | v << 16;
+        return this;
+    }
+
+    @Override
+    public VertexConsumer normal(float x, float y, float z) {
+        delegate.normal(x, y, z);
+        int floatOffset = vertexCount * FLOATS_PER_VERTEX;
+        floatData[floatOffset + NORMAL_X] = x;
+        floatData[floatOffset + NORMAL_Y] = y;
+        floatData[floatOffset + NORMAL_Z] = z;
+        return this;
+    }
+
+    @Override
+    public void endVertex() {
+        delegate.endVertex();
+        nextVertex();
+    }
+
+    @Override
+    public void defaultColor(int red, int green, int blue, int alpha) {
+        delegate.defaultColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void unsetDefaultColor() {
+        delegate.unsetDefaultColor();
+    }
+
+    /**
+     * Creates a new capturing buffer without a delegate.
+     */
+    private CapturingVertexConsumer() {
+        floatData = new float[INITIAL_VERTICES * FLOATS_PER_VERTEX];
+        intData = new int[INITIAL_VERTICES * INTS_PER_VERTEX];
+    }
+
+    /**
+     * Finishes the current vertex and prepares storage for the next one.
+     */
+    private void nextVertex() {
+        vertexCount++;
+
+        // Only grows if a capture is larger than all previous captures on this thread
+        if ((vertexCount + 1) * FLOATS_PER_VERTEX > floatData.length) {
+            floatData = Arrays.copyOf(floatData, floatData.length * 2);
+            intData = Arrays.copyOf(intData, intData.length * 2);
+        }
+
+        clearVertex(vertexCount);
+    }
+
+    /**
+     * Resets a vertex to opaque white with all other attributes set to zero, in case some attributes are not
+     * written for that vertex.
+     * @param vertex        index of the vertex to reset
+     */
+    private void clearVertex(int vertex) {
+        int floatOffset = vertex * FLOATS_PER_VERTEX;
+        int intOffset = vertex * INTS_PER_VERTEX;
+        Arrays.fill(floatData, floatOffset, floatOffset + FLOATS_PER_VERTEX, 0);
+        floatData[floatOffset + RED] = 1;
+        floatData[floatOffset + GREEN] = 1;
+        floatData[floatOffset + BLUE] = 1;
+        floatData[floatOffset + ALPHA] = 1;
+        intData[intOffset + OVERLAY] = 0;
+        intData[intOffset + LIGHT] = 0;
+    }
+
+}
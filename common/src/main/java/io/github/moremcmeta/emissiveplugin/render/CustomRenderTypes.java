@@ -19,22 +19,47 @@ package io.github.moremcmeta.emissiveplugin.render;
 
 import com.mojang.blaze3d.vertex.DefaultVertexFormat;
 import com.mojang.blaze3d.vertex.VertexFormat;
+import io.github.moremcmeta.emissiveplugin.OverlayReloadListeners;
 import net.minecraft.client.renderer.RenderStateShard;
 import net.minecraft.client.renderer.RenderType;
 import net.minecraft.resources.ResourceLocation;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
 /**
  * Contains factories for custom emissive overlay {@link RenderType}s.
  * @author soir20
  */
 public final class CustomRenderTypes extends RenderStateShard {
+    private static final Map<ResourceLocation, RenderType> ENTITY_TRANSLUCENT_Z_LAYERING = new ConcurrentHashMap<>();
+    static {
+        OverlayReloadListeners.register(ENTITY_TRANSLUCENT_Z_LAYERING::clear);
+    }
 
     /**
-     * Creates a new translucent entity render type with z-layering enabled, which works with armor.
+     * Gets the translucent entity render type with z-layering enabled, which works with armor. The same
+     * render type is returned for the same texture until resources are reloaded, so that consecutive overlays
+     * with the same texture are drawn in the same batch.
      * @param textureLocation       location of the texture to render
      * @return translucent render type
      */
     public static RenderType entityTranslucentZLayering(ResourceLocation textureLocation) {
+        requireNonNull(textureLocation, "Texture location cannot be null");
+        return ENTITY_TRANSLUCENT_Z_LAYERING.computeIfAbsent(
+                textureLocation,
+                CustomRenderTypes::makeEntityTranslucentZLayering
+        );
+    }
+
+    /**
+     * Creates a new translucent entity render type with z-layering enabled, which works with armor.
+     * @param textureLocation       location of the texture to render
+     * @return translucent render type
+     */
+    private static RenderType makeEntityTranslucentZLayering(ResourceLocation textureLocation) {
         RenderType.CompositeState compositeState = RenderType.CompositeState.builder()
                 .setShaderState(RENDERTYPE_ENTITY_TRANSLUCENT_SHADER)
                 .setTextureState(new RenderStateShard.TextureStateShard(textureLocation, false, false))
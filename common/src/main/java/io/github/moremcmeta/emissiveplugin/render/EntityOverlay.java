@@ -0,0 +1,83 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.render;
+
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Where the overlay for an entity or block entity texture is rendered: a render type and, if the overlay is
+ * stitched to an atlas, the overlay's sprite in that atlas.
+ * @author soir20
+ */
+public final class EntityOverlay {
+    private final RenderType RENDER_TYPE;
+    @Nullable
+    private final TextureAtlasSprite SPRITE;
+    private final ResourceLocation TEXTURE;
+    private final boolean IS_EMISSIVE;
+
+    /**
+     * Creates a new entity overlay.
+     * @param renderType        render type for the overlay
+     * @param sprite            overlay sprite if the overlay is stitched to an atlas or null if the
+     *                          overlay is an individual texture
+     * @param texture           location of the overlay texture
+     * @param isEmissive        whether the overlay is emissive
+     */
+    public EntityOverlay(RenderType renderType, @Nullable TextureAtlasSprite sprite, ResourceLocation texture,
+                         boolean isEmissive) {
+        RENDER_TYPE = requireNonNull(renderType, "Render type cannot be null");
+        SPRITE = sprite;
+        TEXTURE = requireNonNull(texture, "Texture cannot be null");
+        IS_EMISSIVE = isEmissive;
+    }
+
+    /**
+     * Gets a buffer to render this overlay.
+     * @param bufferSource      source of buffers for rendering
+     * @return buffer to render this overlay
+     */
+    public VertexConsumer buffer(MultiBufferSource bufferSource) {
+        VertexConsumer buffer = bufferSource.getBuffer(RENDER_TYPE);
+        return SPRITE == null ? buffer : SPRITE.wrap(buffer);
+    }
+
+    /**
+     * Gets the location of the overlay texture.
+     * @return location of the overlay texture
+     */
+    public ResourceLocation texture() {
+        return TEXTURE;
+    }
+
+    /**
+     * Gets whether the overlay is emissive.
+     * @return whether the overlay is emissive
+     */
+    public boolean isEmissive() {
+        return IS_EMISSIVE;
+    }
+
+}
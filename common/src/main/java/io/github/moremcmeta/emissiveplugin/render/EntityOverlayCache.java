@@ -0,0 +1,186 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.render;
+
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.emissiveplugin.OverlayReloadListeners;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlayMetadata;
+import io.github.moremcmeta.moremcmeta.api.client.metadata.AnalyzedMetadata;
+import io.github.moremcmeta.moremcmeta.api.client.metadata.MetadataRegistry;
+import io.github.moremcmeta.moremcmeta.api.client.texture.SpriteName;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.SpriteCoordinateExpander;
+import net.minecraft.client.renderer.texture.AbstractTexture;
+import net.minecraft.client.renderer.texture.MissingTextureAtlasSprite;
+import net.minecraft.client.renderer.texture.TextureAtlas;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.resources.ResourceLocation;
+import org.apache.logging.log4j.LogManager;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Caches the {@link EntityOverlay} for each texture used to render entities and block entities. Textures are
+ * keyed by the {@link TextureAtlasSprite} being rendered or by the {@link RenderType} when the texture is not a
+ * sprite. Neither class overrides equality, so a lookup is an identity probe. Textures without an overlay are also
+ * cached, and the cache is cleared whenever resources are reloaded.
+ * @author soir20
+ */
+public final class EntityOverlayCache {
+    private static final Optional<EntityOverlay> NO_OVERLAY = Optional.empty();
+    private static final int MAX_CACHED_KEYS = 4096;
+    private static final Map<Object, Optional<EntityOverlay>> ENTITY_OVERLAYS = new ConcurrentHashMap<>();
+    private static final Map<Object, Optional<EntityOverlay>> BLOCK_ENTITY_OVERLAYS = new ConcurrentHashMap<>();
+    static {
+        OverlayReloadListeners.register(() -> {
+            ENTITY_OVERLAYS.clear();
+            BLOCK_ENTITY_OVERLAYS.clear();
+        });
+    }
+
+    /**
+     * Finds the overlay for the texture currently being rendered.
+     * @param vertexConsumer    buffer that the texture is being rendered to
+     * @param renderType        render type that the texture is being rendered with
+     * @param isBlockEntity     whether a block entity is being rendered
+     * @return overlay for the texture or empty if it has no overlay
+     */
+    public static Optional<EntityOverlay> find(VertexConsumer vertexConsumer, RenderType renderType,
+                                               boolean isBlockEntity) {
+        Object key = vertexConsumer instanceof SpriteCoordinateExpander spriteVertexConsumer
+                ? spriteVertexConsumer.sprite
+                : renderType;
+
+        Map<Object, Optional<EntityOverlay>> overlays = isBlockEntity ? BLOCK_ENTITY_OVERLAYS : ENTITY_OVERLAYS;
+        Optional<EntityOverlay> overlay = overlays.get(key);
+        if (overlay != null) {
+            return overlay;
+        }
+
+        // Some mods create new render types every frame, so don't let those fill up memory
+        if (overlays.size() >= MAX_CACHED_KEYS) {
+            overlays.clear();
+        }
+
+        overlay = resolve(key, isBlockEntity);
+        overlays.put(key, overlay);
+        return overlay;
+    }
+
+    /**
+     * Resolves the overlay for a texture.
+     * @param key               sprite or render type being rendered
+     * @param isBlockEntity     whether a block entity is being rendered
+     * @return overlay for the texture or empty if it has no overlay
+     */
+    private static Optional<EntityOverlay> resolve(Object key, boolean isBlockEntity) {
+        Optional<AnalyzedMetadata> metadataOptional = Optional.empty();
+
+        // Handle a sprite being rendered
+        if (key instanceof TextureAtlasSprite sprite) {
+            ResourceLocation location = sprite.contents().name();
+            metadataOptional = MetadataRegistry.INSTANCE.metadataFromSpriteName(ModConstants.MOD_ID, location);
+
+        // Handle a regular texture being rendered
+        } else if (key instanceof RenderType.CompositeRenderType compositeType
+                && compositeType.state().textureState.cutoutTexture().isPresent()) {
+
+            ResourceLocation location = compositeType.state().textureState.cutoutTexture().get();
+            metadataOptional = MetadataRegistry.INSTANCE.metadataFromPath(ModConstants.MOD_ID, location);
+        }
+
+        if (metadataOptional.isEmpty()) {
+            return NO_OVERLAY;
+        }
+
+        OverlayMetadata overlayMetadata = (OverlayMetadata) metadataOptional.get();
+
+        /* Disabling cull is needed to render emissive layers inside the slime properly, but it needs to
+           be enabled for bed overlays to render properly. Z-layering needs to be enabled for armor overlays
+           to render properly, so the entity shadow type is used. */
+        Function<ResourceLocation, RenderType> overlayType = isBlockEntity
+                ? RenderType::entityTranslucentCull
+                : CustomRenderTypes::entityTranslucentZLayering;
+
+        return Optional.of(makeOverlay(overlayMetadata, overlayType));
+    }
+
+    /**
+     * Resolves where an overlay texture should be rendered.
+     * @param overlayMetadata       metadata for the overlay
+     * @param renderTypeFunction    creates a render type given the location of a texture used while rendering
+     * @return overlay for the texture
+     */
+    private static EntityOverlay makeOverlay(OverlayMetadata overlayMetadata,
+                                             Function<ResourceLocation, RenderType> renderTypeFunction) {
+        ResourceLocation spriteName = overlayMetadata.overlaySpriteName();
+        ResourceLocation overlayLocation = SpriteName.toTexturePath(spriteName);
+        boolean isEmissive = overlayMetadata.isEmissive();
+
+        // All overlays are either stitched to the block atlas or an individual texture
+        Optional<TextureAtlasSprite> sprite = findSprite(TextureAtlas.LOCATION_BLOCKS, overlayLocation, spriteName);
+        if (sprite.isPresent()) {
+            return new EntityOverlay(
+                    renderTypeFunction.apply(TextureAtlas.LOCATION_BLOCKS),
+                    sprite.get(),
+                    overlayLocation,
+                    isEmissive
+            );
+        }
+
+        return new EntityOverlay(renderTypeFunction.apply(overlayLocation), null, overlayLocation, isEmissive);
+    }
+
+    /**
+     * Finds the overlay texture in an atlas if the overlay is a sprite.
+     * @param atlasLocation         atlas to search for the overlay texture
+     * @param overlayLocation       location of the overlay texture
+     * @param spriteName            overlay location as a sprite name
+     * @return overlay sprite if the overlay is a sprite
+     */
+    private static Optional<TextureAtlasSprite> findSprite(ResourceLocation atlasLocation,
+                                                           ResourceLocation overlayLocation,
+                                                           ResourceLocation spriteName) {
+        AbstractTexture abstractTexture = Minecraft.getInstance().getTextureManager().getTexture(atlasLocation);
+        if (!(abstractTexture instanceof TextureAtlas atlas)) {
+            LogManager.getLogger().warn(
+                    "Atlas {} is not a subclass of TextureAtlas; sprites from this atlas will not be used as overlays",
+                    atlasLocation
+            );
+            return Optional.empty();
+        }
+
+        TextureAtlasSprite sprite = atlas.getSprite(spriteName);
+
+        if (sprite.contents().name().equals(MissingTextureAtlasSprite.getLocation())) {
+            sprite = atlas.getSprite(overlayLocation);
+        }
+
+        if (!sprite.contents().name().equals(MissingTextureAtlasSprite.getLocation())) {
+            return Optional.of(sprite);
+        }
+
+        return Optional.empty();
+    }
+
+}
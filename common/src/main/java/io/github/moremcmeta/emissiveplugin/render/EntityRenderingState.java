@@ -20,18 +20,154 @@ package io.github.moremcmeta.emissiveplugin.render;
 import io.github.moremcmeta.emissiveplugin.mixin.ModelPartMixin;
 import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.client.renderer.RenderType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
 
 /**
- * Holds global state for the {@link ModelPartMixin}.
+ * Holds global state for the {@link ModelPartMixin}. Each thread has its own mutable state object, so callers
+ * should get it once per call with {@link #forCurrentThread()} and use it from there.
  * @author soir20
  */
 public final class EntityRenderingState {
 
     /* Entity and block entity rendering should be single-threaded, but use thread locals to
        avoid difficult bugs in case something changes. */
-    public static final ThreadLocal<RenderType> currentRenderType = new ThreadLocal<>();
-    public static final ThreadLocal<MultiBufferSource> currentBufferSource = new ThreadLocal<>();
-    public static final ThreadLocal<Integer> partRenderDepth = ThreadLocal.withInitial(() -> -1);
-    public static final ThreadLocal<Boolean> isBlockEntity = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<EntityRenderingState> STATES = ThreadLocal.withInitial(
+            EntityRenderingState::new
+    );
+    private static final int INITIAL_RENDER_DEPTH = 2;
+    private WrappedBufferSource[] wrappedBufferSources = new WrappedBufferSource[INITIAL_RENDER_DEPTH];
+    private int renderDepth;
+    @Nullable
+    private RenderType currentRenderType;
+    @Nullable
+    private EntityOverlay partOverlay;
+    private int partRenderDepth = -1;
+    private boolean isBlockEntity;
+
+    /**
+     * Gets the rendering state for the current thread.
+     * @return rendering state for the current thread
+     */
+    public static EntityRenderingState forCurrentThread() {
+        return STATES.get();
+    }
+
+    /**
+     * Starts rendering an entity or block entity with the given buffer source. Each nested render uses its own
+     * wrapper, and wrappers are reused between renders, so no wrappers are created after the first few renders.
+     * @param bufferSource      buffer source for the entity or block entity
+     * @param isBlockEntity     whether a block entity is being rendered
+     * @return wrapped buffer source that updates this state when a buffer is retrieved
+     */
+    public MultiBufferSource startRender(MultiBufferSource bufferSource, boolean isBlockEntity) {
+        if (bufferSource instanceof WrappedBufferSource wrappedBufferSource
+                && wrappedBufferSource.delegate() != null) {
+            bufferSource = wrappedBufferSource.delegate();
+        }
+
+        if (renderDepth == wrappedBufferSources.length) {
+            wrappedBufferSources = Arrays.copyOf(wrappedBufferSources, wrappedBufferSources.length * 2);
+        }
+
+        WrappedBufferSource wrappedBufferSource = wrappedBufferSources[renderDepth];
+        if (wrappedBufferSource == null) {
+            wrappedBufferSource = new WrappedBufferSource(this);
+            wrappedBufferSources[renderDepth] = wrappedBufferSource;
+        }
+
+        wrappedBufferSource.reset(bufferSource, isBlockEntity);
+        renderDepth++;
+        return wrappedBufferSource;
+    }
+
+    /**
+     * Clears the buffer source and render type after an entity or block entity finishes rendering.
+     */
+    public void finishRender() {
+        if (renderDepth > 0) {
+            renderDepth--;
+            wrappedBufferSources[renderDepth].clear();
+        }
+
+        currentRenderType = null;
+    }
+
+    /**
+     * Sets the render type that was most recently retrieved from the buffer source.
+     * @param renderType        render type that was retrieved
+     * @param isBlockEntity     whether a block entity is being rendered
+     */
+    public void setRenderType(RenderType renderType, boolean isBlockEntity) {
+        currentRenderType = renderType;
+        this.isBlockEntity = isBlockEntity;
+    }
+
+    /**
+     * Gets the render type that was most recently retrieved from the buffer source.
+     * @return current render type or null if nothing is being rendered
+     */
+    @Nullable
+    public RenderType currentRenderType() {
+        return currentRenderType;
+    }
+
+    /**
+     * Gets the unwrapped buffer source for the entity or block entity being rendered.
+     * @return current buffer source or null if nothing is being rendered
+     */
+    @Nullable
+    public MultiBufferSource currentBufferSource() {
+        return renderDepth == 0 ? null : wrappedBufferSources[renderDepth - 1].delegate();
+    }
+
+    /**
+     * Gets whether a block entity is being rendered.
+     * @return whether a block entity is being rendered
+     */
+    public boolean isBlockEntity() {
+        return isBlockEntity;
+    }
+
+    /**
+     * Records that a model part started rendering.
+     * @return depth of the model part, which is zero for the parent part
+     */
+    public int enterPart() {
+        return ++partRenderDepth;
+    }
+
+    /**
+     * Records that a model part finished rendering.
+     */
+    public void exitPart() {
+        partRenderDepth--;
+    }
+
+    /**
+     * Gets the depth of the model part currently being rendered.
+     * @return depth of the current model part, which is zero for the parent part
+     */
+    public int partRenderDepth() {
+        return partRenderDepth;
+    }
+
+    /**
+     * Sets the overlay for the parent model part being rendered.
+     * @param overlay       overlay for the parent model part or null if it has no overlay
+     */
+    public void setPartOverlay(@Nullable EntityOverlay overlay) {
+        partOverlay = overlay;
+    }
+
+    /**
+     * Gets the overlay for the parent model part being rendered.
+     * @return overlay for the parent model part or null if it has no overlay
+     */
+    @Nullable
+    public EntityOverlay partOverlay() {
+        return partOverlay;
+    }
 
 }
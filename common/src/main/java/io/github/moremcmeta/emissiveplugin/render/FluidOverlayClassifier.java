@@ -0,0 +1,125 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.render;
+
+import io.github.moremcmeta.emissiveplugin.OverlayReloadListeners;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteNames;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.block.BlockModelShaper;
+import net.minecraft.client.resources.model.ModelBakery;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.material.Fluid;
+import net.minecraft.world.level.material.FluidState;
+import net.minecraft.world.level.material.Fluids;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decides once for each {@link Fluid} whether any of the sprites it is rendered with has an overlay, so that
+ * fluids without overlays are only rendered once. Sprites come from the platform's {@link FluidSpriteProvider}
+ * if there is one, or from the same models and materials that vanilla uses for water and lava. Fluids whose
+ * sprites cannot be determined are assumed to have overlays. Classifications are cleared on reload.
+ * @author soir20
+ */
+public final class FluidOverlayClassifier {
+    private static final Map<Fluid, Boolean> HAS_OVERLAY = new ConcurrentHashMap<>();
+    private static volatile FluidSpriteProvider spriteProvider = (fluid) -> Optional.empty();
+    static {
+        OverlayReloadListeners.register(HAS_OVERLAY::clear);
+    }
+
+    /**
+     * Sets the platform-specific provider of fluid sprites.
+     * @param provider      provider of fluid sprites
+     */
+    public static void setSpriteProvider(FluidSpriteProvider provider) {
+        spriteProvider = requireNonNull(provider, "Provider cannot be null");
+        HAS_OVERLAY.clear();
+    }
+
+    /**
+     * Checks whether a fluid may be rendered with an overlay.
+     * @param fluidState        state of the fluid to check
+     * @return whether the fluid may be rendered with an overlay
+     */
+    public static boolean hasOverlay(FluidState fluidState) {
+        Fluid fluid = fluidState.getType();
+        Boolean hasOverlay = HAS_OVERLAY.get(fluid);
+        if (hasOverlay != null) {
+            return hasOverlay;
+        }
+
+        return HAS_OVERLAY.computeIfAbsent(fluid, FluidOverlayClassifier::classify);
+    }
+
+    /**
+     * Checks whether any of a fluid's sprites has an overlay.
+     * @param fluid     fluid to classify
+     * @return whether the fluid may be rendered with an overlay
+     */
+    private static boolean classify(Fluid fluid) {
+        Optional<Collection<ResourceLocation>> spriteNames = spriteProvider.spriteNames(fluid)
+                .or(() -> vanillaSpriteNames(fluid));
+        if (spriteNames.isEmpty()) {
+            return true;
+        }
+
+        OverlaySpriteNames overlaySpriteNames = OverlaySpriteNames.current();
+        for (ResourceLocation spriteName : spriteNames.get()) {
+            if (overlaySpriteNames.hasOverlay(spriteName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the sprites that vanilla renders water and lava with.
+     * @param fluid     fluid to find sprites for
+     * @return names of the fluid's sprites or empty if the fluid is not water or lava
+     */
+    private static Optional<Collection<ResourceLocation>> vanillaSpriteNames(Fluid fluid) {
+        BlockModelShaper modelShaper = Minecraft.getInstance().getModelManager().getBlockModelShaper();
+
+        if (fluid.isSame(Fluids.WATER)) {
+            return Optional.of(List.of(
+                    modelShaper.getParticleIcon(Blocks.WATER.defaultBlockState()).contents().name(),
+                    ModelBakery.WATER_FLOW.texture(),
+                    ModelBakery.WATER_OVERLAY.texture()
+            ));
+        }
+
+        if (fluid.isSame(Fluids.LAVA)) {
+            return Optional.of(List.of(
+                    modelShaper.getParticleIcon(Blocks.LAVA.defaultBlockState()).contents().name(),
+                    ModelBakery.LAVA_FLOW.texture()
+            ));
+        }
+
+        return Optional.empty();
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.render;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.material.Fluid;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Finds the sprites that a fluid is rendered with on a specific platform.
+ * @author soir20
+ */
+@FunctionalInterface
+public interface FluidSpriteProvider {
+
+    /**
+     * Gets the names of all block atlas sprites that a fluid may be rendered with.
+     * @param fluid     fluid to find sprites for
+     * @return names of the fluid's sprites or empty if they cannot be determined without a position
+     */
+    Optional<Collection<ResourceLocation>> spriteNames(Fluid fluid);
+
+}
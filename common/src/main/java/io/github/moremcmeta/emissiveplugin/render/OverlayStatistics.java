@@ -0,0 +1,386 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.render;
+
+import io.github.moremcmeta.emissiveplugin.ModConstants;
+import net.minecraft.client.renderer.RenderType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Optionally collects statistics about overlay work during section rebuilds and logs a summary periodically.
+ * Each thread records into its own accumulator, which only that thread writes to, so recording never takes a
+ * lock. Finished sections go into a ring buffer and totals into counters, both published with release writes.
+ * Whichever thread finishes a section after the report interval has passed reads everything published by all
+ * threads since the last report, including threads that have since gone idle or died. Statistics are only
+ * collected when the {@link #PROPERTY} system property is true, and every recording method returns immediately
+ * otherwise.
+ * @author soir20
+ */
+public final class OverlayStatistics {
+    public static final String PROPERTY = ModConstants.MOD_ID + ".overlayStatistics";
+    private static final boolean IS_ENABLED = Boolean.getBoolean(PROPERTY);
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int LAYERS = RenderType.chunkBufferLayers().size();
+    private static final int OUTSIDE_SECTION_QUADS = LAYERS;
+    private static final int OUTSIDE_SECTION_NANOS = LAYERS + 1;
+    private static final int FLUID_PASSES = LAYERS + 2;
+    private static final int DROPPED_SECTIONS = LAYERS + 3;
+    private static final int COUNTERS = LAYERS + 4;
+    private static final int RING_SECTIONS = 1 << 14;
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final Queue<Accumulator> ALL_ACCUMULATORS = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Accumulator> ACCUMULATORS = ThreadLocal.withInitial(() -> {
+        Accumulator accumulator = new Accumulator(Thread.currentThread());
+        ALL_ACCUMULATORS.add(accumulator);
+        return accumulator;
+    });
+    private static final AtomicLong NEXT_REPORT = new AtomicLong(System.nanoTime() + REPORT_INTERVAL_NANOS);
+
+    /**
+     * Checks whether statistics are being collected.
+     * @return whether statistics are being collected
+     */
+    public static boolean isEnabled() {
+        return IS_ENABLED;
+    }
+
+    /**
+     * Starts recording a section rebuild on the current thread.
+     */
+    public static void beginSection() {
+        if (!IS_ENABLED) {
+            return;
+        }
+
+        ACCUMULATORS.get().beginSection();
+    }
+
+    /**
+     * Finishes recording a section rebuild on the current thread and logs a summary if one is due.
+     */
+    public static void endSection() {
+        if (!IS_ENABLED) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        ACCUMULATORS.get().endSection(now);
+
+        long nextReport = NEXT_REPORT.get();
+        if (now >= nextReport && NEXT_REPORT.compareAndSet(nextReport, now + REPORT_INTERVAL_NANOS)) {
+            report();
+        }
+    }
+
+    /**
+     * Records overlay quads emitted for a render layer.
+     * @param renderType        chunk render layer the quads were emitted to
+     * @param quads             number of overlay quads
+     * @param nanos             nanoseconds spent on overlay work
+     */
+    public static void recordQuads(RenderType renderType, int quads, long nanos) {
+        if (!IS_ENABLED) {
+            return;
+        }
+
+        ACCUMULATORS.get().recordQuads(renderType.getChunkLayerId(), quads, nanos);
+    }
+
+    /**
+     * Records overlay work that did not produce quads for a specific layer.
+     * @param nanos             nanoseconds spent on overlay work
+     */
+    public static void recordWork(long nanos) {
+        if (!IS_ENABLED) {
+            return;
+        }
+
+        ACCUMULATORS.get().recordQuads(-1, 0, nanos);
+    }
+
+    /**
+     * Records an overlay pass over a fluid's vertices.
+     * @param renderType        chunk render layer the overlay quads were emitted to
+     * @param quads             number of overlay quads
+     * @param nanos             nanoseconds spent on overlay work
+     */
+    public static void recordFluidPass(RenderType renderType, int quads, long nanos) {
+        if (!IS_ENABLED) {
+            return;
+        }
+
+        Accumulator accumulator = ACCUMULATORS.get();
+        accumulator.recordQuads(renderType.getChunkLayerId(), quads, nanos);
+        accumulator.recordFluidPass();
+    }
+
+    /**
+     * Summarizes and logs everything recorded since the last report. Accumulators of threads that have died are
+     * removed once their last statistics are read.
+     */
+    private static synchronized void report() {
+        Accumulator[] accumulators = ALL_ACCUMULATORS.toArray(new Accumulator[0]);
+
+        // Decide which threads are gone before reading, so that nothing they recorded is missed
+        boolean[] isDead = new boolean[accumulators.length];
+        long[] heads = new long[accumulators.length];
+        int totalSections = 0;
+        for (int index = 0; index < accumulators.length; index++) {
+            isDead[index] = accumulators[index].isOwnerDead();
+            heads[index] = accumulators[index].head();
+            totalSections += accumulators[index].available(heads[index]);
+        }
+
+        long[] rebuildNanos = new long[totalSections];
+        long[] overlayNanos = new long[totalSections];
+        long[] overlayQuads = new long[totalSections];
+        long[] counters = new long[COUNTERS];
+        int offset = 0;
+        for (int index = 0; index < accumulators.length; index++) {
+            Accumulator accumulator = accumulators[index];
+            offset = accumulator.drain(heads[index], rebuildNanos, overlayNanos, overlayQuads, offset);
+            accumulator.addCounterChanges(counters);
+
+            if (isDead[index]) {
+                ALL_ACCUMULATORS.remove(accumulator);
+            }
+        }
+
+        if (totalSections == 0 && counters[OUTSIDE_SECTION_QUADS] == 0 && counters[OUTSIDE_SECTION_NANOS] == 0) {
+            return;
+        }
+
+        Arrays.sort(rebuildNanos);
+        Arrays.sort(overlayNanos);
+        Arrays.sort(overlayQuads);
+
+        List<RenderType> layers = RenderType.chunkBufferLayers();
+        StringBuilder layerSummary = new StringBuilder();
+        for (int layer = 0; layer < LAYERS; layer++) {
+            if (layer > 0) {
+                layerSummary.append(", ");
+            }
+            layerSummary.append(layers.get(layer)).append('=').append(counters[layer]);
+        }
+
+        LOGGER.info(
+                "Overlay statistics for {} section rebuilds: rebuild p50={}us p99={}us, overlay work p50={}us "
+                        + "p99={}us, overlay quads per section p50={} p99={}, fluid overlay passes={}, "
+                        + "overlay quads by layer [{}], outside sections {} quads in {}us, {} rebuilds not sampled",
+                totalSections,
+                percentile(rebuildNanos, 50) / 1000,
+                percentile(rebuildNanos, 99) / 1000,
+                percentile(overlayNanos, 50) / 1000,
+                percentile(overlayNanos, 99) / 1000,
+                percentile(overlayQuads, 50),
+                percentile(overlayQuads, 99),
+                counters[FLUID_PASSES],
+                layerSummary,
+                counters[OUTSIDE_SECTION_QUADS],
+                counters[OUTSIDE_SECTION_NANOS] / 1000,
+                counters[DROPPED_SECTIONS]
+        );
+    }
+
+    /**
+     * Gets a percentile from sorted values using the nearest-rank method.
+     * @param sortedValues      sorted values
+     * @param percentile        percentile to get from 0 to 100
+     * @return value at the percentile or 0 if there are no values
+     */
+    private static long percentile(long[] sortedValues, int percentile) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Statistics recorded by a single thread. Only the owning thread writes sections and counters, and only
+     * the reporting thread advances the tail of the ring buffer and remembers which counter values it has
+     * already reported. Sections recorded while the ring buffer is full are counted, but not sampled.
+     * @author soir20
+     */
+    private static final class Accumulator {
+        private final WeakReference<Thread> OWNER;
+        private final long[] REBUILD_NANOS = new long[RING_SECTIONS];
+        private final long[] OVERLAY_NANOS = new long[RING_SECTIONS];
+        private final long[] OVERLAY_QUADS = new long[RING_SECTIONS];
+        private final AtomicLongArray COUNTER_VALUES = new AtomicLongArray(COUNTERS);
+        private final AtomicLong HEAD = new AtomicLong();
+        private final AtomicLong TAIL = new AtomicLong();
+        private final long[] REPORTED_COUNTERS = new long[COUNTERS];
+        private boolean isInSection;
+        private long sectionStart;
+        private long sectionOverlayNanos;
+        private long sectionOverlayQuads;
+
+        /**
+         * Creates a new accumulator for a thread.
+         * @param owner     thread that records into this accumulator
+         */
+        public Accumulator(Thread owner) {
+            OWNER = new WeakReference<>(owner);
+        }
+
+        /**
+         * Starts recording a section rebuild. Only called by the owning thread.
+         */
+        public void beginSection() {
+            isInSection = true;
+            sectionStart = System.nanoTime();
+            sectionOverlayNanos = 0;
+            sectionOverlayQuads = 0;
+        }
+
+        /**
+         * Finishes recording a section rebuild and publishes it. Only called by the owning thread.
+         * @param now       current time in nanoseconds
+         */
+        public void endSection(long now) {
+            if (!isInSection) {
+                return;
+            }
+
+            isInSection = false;
+            long head = HEAD.getPlain();
+            if (head - TAIL.getAcquire() == RING_SECTIONS) {
+                add(DROPPED_SECTIONS, 1);
+                return;
+            }
+
+            int index = (int) (head & (RING_SECTIONS - 1));
+            REBUILD_NANOS[index] = now - sectionStart;
+            OVERLAY_NANOS[index] = sectionOverlayNanos;
+            OVERLAY_QUADS[index] = sectionOverlayQuads;
+            HEAD.setRelease(head + 1);
+        }
+
+        /**
+         * Records overlay quads emitted for a render layer. Only called by the owning thread.
+         * @param layer     chunk layer ID or -1 if the quads are not for a specific layer
+         * @param quads     number of overlay quads
+         * @param nanos     nanoseconds spent on overlay work
+         */
+        public void recordQuads(int layer, int quads, long nanos) {
+            if (layer >= 0 && quads > 0) {
+                add(layer, quads);
+            }
+
+            if (isInSection) {
+                sectionOverlayQuads += quads;
+                sectionOverlayNanos += nanos;
+            } else {
+                add(OUTSIDE_SECTION_QUADS, quads);
+                add(OUTSIDE_SECTION_NANOS, nanos);
+            }
+        }
+
+        /**
+         * Records an overlay pass over a fluid's vertices. Only called by the owning thread.
+         */
+        public void recordFluidPass() {
+            add(FLUID_PASSES, 1);
+        }
+
+        /**
+         * Checks whether the owning thread has died, after which it never records again.
+         * @return whether the owning thread has died
+         */
+        public boolean isOwnerDead() {
+            Thread owner = OWNER.get();
+            return owner == null || !owner.isAlive();
+        }
+
+        /**
+         * Gets the position after the last published section. Only called by the reporting thread.
+         * @return position after the last published section
+         */
+        public long head() {
+            return HEAD.getAcquire();
+        }
+
+        /**
+         * Gets the number of published sections that have not been reported. Only called by the reporting thread.
+         * @param head      position from {@link #head()}
+         * @return number of sections that have not been reported
+         */
+        public int available(long head) {
+            return (int) (head - TAIL.getPlain());
+        }
+
+        /**
+         * Copies all unreported sections up to a position and releases their space in the ring buffer. Only called
+         * by the reporting thread.
+         * @param head              position from {@link #head()}
+         * @param rebuildNanos      array to copy rebuild times into
+         * @param overlayNanos      array to copy overlay times into
+         * @param overlayQuads      array to copy overlay quad counts into
+         * @param offset            index in the arrays to start copying to
+         * @return index in the arrays after the last copied section
+         */
+        public int drain(long head, long[] rebuildNanos, long[] overlayNanos, long[] overlayQuads, int offset) {
+            for (long position = TAIL.getPlain(); position < head; position++) {
+                int index = (int) (position & (RING_SECTIONS - 1));
+                rebuildNanos[offset] = REBUILD_NANOS[index];
+                overlayNanos[offset] = OVERLAY_NANOS[index];
+                overlayQuads[offset] = OVERLAY_QUADS[index];
+                offset++;
+            }
+
+            TAIL.setRelease(head);
+            return offset;
+        }
+
+        /**
+         * Adds how much each counter grew since the last report. Only called by the reporting thread.
+         * @param totals        totals to add the changes to
+         */
+        public void addCounterChanges(long[] totals) {
+            for (int counter = 0; counter < COUNTERS; counter++) {
+                long value = COUNTER_VALUES.getAcquire(counter);
+                totals[counter] += value - REPORTED_COUNTERS[counter];
+                REPORTED_COUNTERS[counter] = value;
+            }
+        }
+
+        /**
+         * Adds to a counter. Only called by the owning thread, so the counter can be updated without an atomic
+         * read-modify-write.
+         * @param counter       index of the counter
+         * @param amount        amount to add
+         */
+        private void add(int counter, long amount) {
+            COUNTER_VALUES.setRelease(counter, COUNTER_VALUES.getPlain(counter) + amount);
+        }
+
+    }
+
+}
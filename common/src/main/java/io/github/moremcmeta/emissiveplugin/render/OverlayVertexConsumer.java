@@ -18,84 +18,117 @@
 package io.github.moremcmeta.emissiveplugin.render;
 
 import com.mojang.blaze3d.vertex.VertexConsumer;
-import io.github.moremcmeta.emissiveplugin.ModConstants;
 import io.github.moremcmeta.emissiveplugin.fabricapi.SpriteFinder;
-import io.github.moremcmeta.emissiveplugin.metadata.OverlayMetadata;
-import io.github.moremcmeta.emissiveplugin.model.OverlayQuadFunction;
-import io.github.moremcmeta.moremcmeta.api.client.metadata.MetadataRegistry;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteIndex;
+import io.github.moremcmeta.emissiveplugin.metadata.ResolvedOverlay;
+import io.github.moremcmeta.emissiveplugin.metadata.UvRemap;
 import net.minecraft.MethodsReturnNonnullByDefault;
-import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.LightTexture;
-import net.minecraft.client.renderer.texture.TextureAtlas;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
-import net.minecraft.resources.ResourceLocation;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Stream;
+import java.util.Arrays;
+import java.util.Optional;
 
 import static java.util.Objects.requireNonNull;
 
 /**
- * Only renders vertices that are part of overlay quads for fluids.
+ * Only renders vertices that are part of overlay quads for fluids. Calls for each vertex in a quad are recorded
+ * into preallocated arrays and replayed in the same order once the quad is complete, so no memory is allocated
+ * per vertex. If the same attribute is set more than once for a vertex, the last value is used for every call.
  * @author soir20
  */
 @MethodsReturnNonnullByDefault
 public final class OverlayVertexConsumer implements VertexConsumer {
+    private static final ThreadLocal<OverlayVertexConsumer> CONSUMERS = ThreadLocal.withInitial(
+            OverlayVertexConsumer::new
+    );
     private static final int VERTS_PER_QUAD = 4;
-    private final SpriteFinder SPRITE_FINDER;
-    private final VertexConsumer DELEGATE;
-    private final List<Task>[] TASKS;
-    private final boolean[] HAS_UV;
+    private static final int INITIAL_CALLS_PER_VERTEX = 8;
+    private static final byte VERTEX = 0;
+    private static final byte COLOR = 1;
+    private static final byte UV = 2;
+    private static final byte OVERLAY_COORDS = 3;
+    private static final byte UV2 = 4;
+    private static final byte NORMAL = 5;
+    private static final byte DEFAULT_COLOR = 6;
+    private static final byte UNSET_DEFAULT_COLOR = 7;
+    private final byte[][] CALLS;
+    private final int[] CALL_COUNTS;
+    private final int[] SET_ATTRIBUTES;
+    private final double[] POS_X;
+    private final double[] POS_Y;
+    private final double[] POS_Z;
+    private final int[] RED;
+    private final int[] GREEN;
+    private final int[] BLUE;
+    private final int[] ALPHA;
     private final float[] TEX_U;
     private final float[] TEX_V;
+    private final int[] OVERLAY_U;
+    private final int[] OVERLAY_V;
     private final int[] LIGHT_U;
     private final int[] LIGHT_V;
-    private final int[] RED;
-    private final int[] GREEN;
-    private final int[] BLUE;
+    private final float[] NORMAL_X;
+    private final float[] NORMAL_Y;
+    private final float[] NORMAL_Z;
+    private final int[] DEFAULT_RED;
+    private final int[] DEFAULT_GREEN;
+    private final int[] DEFAULT_BLUE;
+    private final int[] DEFAULT_ALPHA;
+    private SpriteFinder spriteFinder;
+    private OverlaySpriteIndex overlayIndex;
+    private VertexConsumer delegate;
     private int currentVertex;
 
     /**
-     * Creates a new buffer.
+     * Gets the buffer for the current thread and points it at a new delegate. The returned buffer is only valid
+     * until this method is called again on the same thread.
      * @param spriteFinder      sprite finder to search for sprites
+     * @param overlayIndex      overlays for sprites in the same atlas as the sprite finder
      * @param delegate          delegate buffer to write vertices to
+     * @return buffer for the current thread
      */
-    @SuppressWarnings("unchecked")
-    public OverlayVertexConsumer(SpriteFinder spriteFinder, VertexConsumer delegate) {
-        SPRITE_FINDER = requireNonNull(spriteFinder, "Sprite finder cannot be null");
-        DELEGATE = requireNonNull(delegate, "Delegate cannot be null");
+    public static OverlayVertexConsumer forCurrentThread(SpriteFinder spriteFinder, OverlaySpriteIndex overlayIndex,
+                                                         VertexConsumer delegate) {
+        OverlayVertexConsumer consumer = CONSUMERS.get();
+        consumer.reset(spriteFinder, overlayIndex, delegate);
+        return consumer;
+    }
 
-        TASKS = Stream.generate(ArrayList::new).limit(VERTS_PER_QUAD).toArray(List[]::new);
-        HAS_UV = new boolean[VERTS_PER_QUAD];
-        TEX_U = new float[VERTS_PER_QUAD];
-        TEX_V = new float[VERTS_PER_QUAD];
-        LIGHT_U = new int[VERTS_PER_QUAD];
-        LIGHT_V = new int[VERTS_PER_QUAD];
-        RED = new int[VERTS_PER_QUAD];
-        GREEN = new int[VERTS_PER_QUAD];
-        BLUE = new int[VERTS_PER_QUAD];
+    /**
+     * Creates a new buffer.
+     * @param spriteFinder      sprite finder to search for sprites
+     * @param overlayIndex      overlays for sprites in the same atlas as the sprite finder
+     * @param delegate          delegate buffer to write vertices to
+     */
+    public OverlayVertexConsumer(SpriteFinder spriteFinder, OverlaySpriteIndex overlayIndex,
+                                 VertexConsumer delegate) {
+        this();
+        reset(spriteFinder, overlayIndex, delegate);
     }
 
     @Override
     public VertexConsumer vertex(double x, double y, double z) {
-        TASKS[currentVertex].add((delegate, texU, texV, lightU, lightV, red, green, blue) -> delegate.vertex(x, y, z));
+        record(VERTEX);
+        POS_X[currentVertex] = x;
+        POS_Y[currentVertex] = y;
+        POS_Z[currentVertex] = z;
         return this;
     }
 
     @Override
     public VertexConsumer color(int red, int green, int blue, int alpha) {
-        TASKS[currentVertex].add((delegate, texU, texV, lightU, lightV, r, g, b) -> delegate.color(r, g, b, alpha));
+        record(COLOR);
         RED[currentVertex] = red;
         GREEN[currentVertex] = green;
         BLUE[currentVertex] = blue;
+        ALPHA[currentVertex] = alpha;
         return this;
     }
 
     @Override
     public VertexConsumer uv(float u, float v) {
-        TASKS[currentVertex].add((delegate, texU, texV, lightU, lightV, red, green, blue) -> delegate.uv(texU, texV));
-        HAS_UV[currentVertex] = true;
+        record(UV);
         TEX_U[currentVertex] = u;
         TEX_V[currentVertex] = v;
         return this;
@@ -103,13 +136,15 @@ public final class OverlayVertexConsumer implements VertexConsumer {
 
     @Override
     public VertexConsumer overlayCoords(int u, int v) {
-        TASKS[currentVertex].add((delegate, texU, texV, lightU, lightV, red, green, blue) -> delegate.overlayCoords(u, v));
+        record(OVERLAY_COORDS);
+        OVERLAY_U[currentVertex] = u;
+        OVERLAY_V[currentVertex] = v;
         return this;
     }
 
     @Override
     public VertexConsumer uv2(int u, int v) {
-        TASKS[currentVertex].add((delegate, texU, texV, lightU, lightV, red, green, blue) -> delegate.uv2(lightU, lightV));
+        record(UV2);
         LIGHT_U[currentVertex] = u;
         LIGHT_V[currentVertex] = v;
         return this;
@@ -117,7 +152,10 @@ public final class OverlayVertexConsumer implements VertexConsumer {
 
     @Override
     public VertexConsumer normal(float x, float y, float z) {
-        TASKS[currentVertex].add((delegate, texU, texV, lightU, lightV, red, green, blue) -> delegate.normal(x, y ,z));
+        record(NORMAL);
+        NORMAL_X[currentVertex] = x;
+        NORMAL_Y[currentVertex] = y;
+        NORMAL_Z[currentVertex] = z;
         return this;
     }
 
@@ -132,118 +170,183 @@ public final class OverlayVertexConsumer implements VertexConsumer {
         float centroidU = 0;
         float centroidV = 0;
         for (int vertex = 0; vertex < VERTS_PER_QUAD; vertex++) {
-            hasUV = hasUV && HAS_UV[vertex];
+            hasUV = hasUV && isSet(vertex, UV);
             centroidU += TEX_U[vertex];
             centroidV += TEX_V[vertex];
-            HAS_UV[vertex] = false;
         }
         centroidU /= VERTS_PER_QUAD;
         centroidV /= VERTS_PER_QUAD;
 
         // Ignore vertices without an associated texture
         if (hasUV) {
-            SPRITE_FINDER.find(centroidU, centroidV).ifPresent((sprite) -> {
-                ResourceLocation spriteName = sprite.contents().name();
-
-                MetadataRegistry.INSTANCE.metadataFromSpriteName(ModConstants.MOD_ID, spriteName)
-                        .ifPresent((metadata) -> {
-                            OverlayMetadata overlayMetadata = (OverlayMetadata) metadata;
-                            ResourceLocation overlaySpriteName = overlayMetadata.overlaySpriteName();
-                            TextureAtlasSprite overlaySprite = Minecraft.getInstance()
-                                    .getTextureAtlas(TextureAtlas.LOCATION_BLOCKS)
-                                    .apply(overlaySpriteName);
-
-                            for (int vertex = 0; vertex < VERTS_PER_QUAD; vertex++) {
-
-                                // Compute equivalent coordinates for the overlay sprite
-                                float newU = OverlayQuadFunction.recomputeSpriteCoordinate(
-                                        TEX_U[vertex],
-                                        sprite,
-                                        overlaySprite,
-                                        TextureAtlasSprite::getU0,
-                                        TextureAtlasSprite::getU1
-                                );
-                                float newV = OverlayQuadFunction.recomputeSpriteCoordinate(
-                                        TEX_V[vertex],
-                                        sprite,
-                                        overlaySprite,
-                                        TextureAtlasSprite::getV0,
-                                        TextureAtlasSprite::getV1
-                                );
-
-                                int lightU;
-                                int lightV;
-                                int red;
-                                int green;
-                                int blue;
-                                if (overlayMetadata.isEmissive()) {
-                                    lightU = LightTexture.FULL_BRIGHT;
-                                    lightV = LightTexture.FULL_BRIGHT;
-
-                                    red = 255;
-                                    green = 255;
-                                    blue = 255;
-                                } else {
-                                    lightU = LIGHT_U[vertex];
-                                    lightV = LIGHT_V[vertex];
-                                    red = RED[vertex];
-                                    green = GREEN[vertex];
-                                    blue = BLUE[vertex];
-                                }
-
-                                TASKS[vertex].forEach((task) -> task.run(
-                                        DELEGATE,
-                                        newU,
-                                        newV,
-                                        lightU,
-                                        lightV,
-                                        red,
-                                        green,
-                                        blue
-                                ));
-                                DELEGATE.endVertex();
-
-                            }
-                        });
-                    }
-            );
+            int spriteIndex = spriteFinder.findIndex(centroidU, centroidV);
+            if (spriteIndex != SpriteFinder.NOT_FOUND) {
+                renderOverlay(spriteFinder.sprite(spriteIndex));
+            }
         }
 
-        currentVertex = 0;
-        for (int vertex = 0; vertex < VERTS_PER_QUAD; vertex++) {
-            TASKS[vertex].clear();
-        }
+        clearQuad();
     }
 
     @Override
     public void defaultColor(int red, int green, int blue, int alpha) {
-        TASKS[currentVertex].add((delegate, texU, texV, lightU, lightV, r, g, b) -> delegate.defaultColor(red, green, blue, alpha));
+        record(DEFAULT_COLOR);
+        DEFAULT_RED[currentVertex] = red;
+        DEFAULT_GREEN[currentVertex] = green;
+        DEFAULT_BLUE[currentVertex] = blue;
+        DEFAULT_ALPHA[currentVertex] = alpha;
     }
 
     @Override
     public void unsetDefaultColor() {
-        TASKS[currentVertex].add((delegate, texU, texV, lightU, lightV, r, g, b) -> delegate.unsetDefaultColor());
+        record(UNSET_DEFAULT_COLOR);
+    }
+
+    /**
+     * Creates a new buffer without a sprite finder or delegate.
+     */
+    private OverlayVertexConsumer() {
+        CALLS = new byte[VERTS_PER_QUAD][INITIAL_CALLS_PER_VERTEX];
+        CALL_COUNTS = new int[VERTS_PER_QUAD];
+        SET_ATTRIBUTES = new int[VERTS_PER_QUAD];
+        POS_X = new double[VERTS_PER_QUAD];
+        POS_Y = new double[VERTS_PER_QUAD];
+        POS_Z = new double[VERTS_PER_QUAD];
+        RED = new int[VERTS_PER_QUAD];
+        GREEN = new int[VERTS_PER_QUAD];
+        BLUE = new int[VERTS_PER_QUAD];
+        ALPHA = new int[VERTS_PER_QUAD];
+        TEX_U = new float[VERTS_PER_QUAD];
+        TEX_V = new float[VERTS_PER_QUAD];
+        OVERLAY_U = new int[VERTS_PER_QUAD];
+        OVERLAY_V = new int[VERTS_PER_QUAD];
+        LIGHT_U = new int[VERTS_PER_QUAD];
+        LIGHT_V = new int[VERTS_PER_QUAD];
+        NORMAL_X = new float[VERTS_PER_QUAD];
+        NORMAL_Y = new float[VERTS_PER_QUAD];
+        NORMAL_Z = new float[VERTS_PER_QUAD];
+        DEFAULT_RED = new int[VERTS_PER_QUAD];
+        DEFAULT_GREEN = new int[VERTS_PER_QUAD];
+        DEFAULT_BLUE = new int[VERTS_PER_QUAD];
+        DEFAULT_ALPHA = new int[VERTS_PER_QUAD];
+    }
+
+    /**
+     * Points this buffer at a new sprite finder, overlay index, and delegate and discards any partially-recorded
+     * quad.
+     * @param spriteFinder      sprite finder to search for sprites
+     * @param overlayIndex      overlays for sprites in the same atlas as the sprite finder
+     * @param delegate          delegate buffer to write vertices to
+     */
+    private void reset(SpriteFinder spriteFinder, OverlaySpriteIndex overlayIndex, VertexConsumer delegate) {
+        this.spriteFinder = requireNonNull(spriteFinder, "Sprite finder cannot be null");
+        this.overlayIndex = requireNonNull(overlayIndex, "Overlay index cannot be null");
+        this.delegate = requireNonNull(delegate, "Delegate cannot be null");
+        clearQuad();
+    }
+
+    /**
+     * Records that an attribute was set for the current vertex.
+     * @param attribute     attribute that was set
+     */
+    private void record(byte attribute) {
+        int callCount = CALL_COUNTS[currentVertex];
+        byte[] calls = CALLS[currentVertex];
+
+        // Only grows if a vertex has an unusually large number of calls, so this does not happen per vertex
+        if (callCount == calls.length) {
+            calls = Arrays.copyOf(calls, calls.length * 2);
+            CALLS[currentVertex] = calls;
+        }
+
+        calls[callCount] = attribute;
+        CALL_COUNTS[currentVertex] = callCount + 1;
+        SET_ATTRIBUTES[currentVertex] |= 1 << attribute;
+    }
+
+    /**
+     * Checks whether an attribute was set for a vertex.
+     * @param vertex        index of the vertex in the current quad
+     * @param attribute     attribute to check
+     * @return whether the attribute was set
+     */
+    private boolean isSet(int vertex, byte attribute) {
+        return (SET_ATTRIBUTES[vertex] & (1 << attribute)) != 0;
+    }
+
+    /**
+     * Writes the overlay for the current quad to the delegate if the quad's sprite has an overlay.
+     * @param sprite        sprite used by the current quad
+     */
+    private void renderOverlay(TextureAtlasSprite sprite) {
+        Optional<ResolvedOverlay> overlayOptional = overlayIndex.find(sprite);
+        if (overlayOptional.isEmpty()) {
+            return;
+        }
+
+        ResolvedOverlay overlay = overlayOptional.get();
+        UvRemap uvRemap = overlay.uvRemap();
+        boolean isEmissive = overlay.isEmissive();
+
+        for (int vertex = 0; vertex < VERTS_PER_QUAD; vertex++) {
+
+            // Compute equivalent coordinates for the overlay sprite
+            replayVertex(vertex, uvRemap.remapU(TEX_U[vertex]), uvRemap.remapV(TEX_V[vertex]), isEmissive);
+        }
     }
 
     /**
-     * Represents a method call to this buffer that is not executed immediately.
-     * @author soir20
+     * Replays all recorded calls for a vertex to the delegate in the order they were made.
+     * @param vertex        index of the vertex in the current quad
+     * @param texU          u-coordinate of the overlay sprite on the block atlas
+     * @param texV          v-coordinate of the overlay sprite on the block atlas
+     * @param isEmissive    whether the overlay is emissive
      */
-    private interface Task {
-
-        /**
-         * Runs this task with the given buffer.
-         * @param buffer    buffer to run the task on
-         * @param texU      u-coordinate of the texture sprite on the block atlas
-         * @param texV      v-coordinate of the texture sprite on the block atlas
-         * @param lightU    u-coordinate of the light texture
-         * @param lightV    v-coordinate of the light texture
-         * @param red       red component of the vertex's color
-         * @param green     green component of the vertex's color
-         * @param blue      blue component of the vertex's color
-         */
-        void run(VertexConsumer buffer, float texU, float texV, int lightU, int lightV, int red, int green, int blue);
+    private void replayVertex(int vertex, float texU, float texV, boolean isEmissive) {
+        byte[] calls = CALLS[vertex];
+        int callCount = CALL_COUNTS[vertex];
 
+        for (int callIndex = 0; callIndex < callCount; callIndex++) {
+            switch (calls[callIndex]) {
+                case VERTEX -> delegate.vertex(POS_X[vertex], POS_Y[vertex], POS_Z[vertex]);
+                case COLOR -> {
+                    if (isEmissive) {
+                        delegate.color(255, 255, 255, ALPHA[vertex]);
+                    } else {
+                        delegate.color(RED[vertex], GREEN[vertex], BLUE[vertex], ALPHA[vertex]);
+                    }
+                }
+                case UV -> delegate.uv(texU, texV);
+                case OVERLAY_COORDS -> delegate.overlayCoords(OVERLAY_U[vertex], OVERLAY_V[vertex]);
+                case UV2 -> {
+                    if (isEmissive) {
+                        delegate.uv2(LightTexture.FULL_BRIGHT, LightTexture.FULL_BRIGHT);
+                    } else {
+                        delegate.uv2(LIGHT_U[vertex], LIGHT_V[vertex]);
+                    }
+                }
+                case NORMAL -> delegate.normal(NORMAL_X[vertex], NORMAL_Y[vertex], NORMAL_Z[vertex]);
+                case DEFAULT_COLOR -> delegate.defaultColor(
+                        DEFAULT_RED[vertex],
+                        DEFAULT_GREEN[vertex],
+                        DEFAULT_BLUE[vertex],
+                        DEFAULT_ALPHA[vertex]
+                );
+                case UNSET_DEFAULT_COLOR -> delegate.unsetDefaultColor();
+                default -> throw new IllegalStateException("Unknown vertex attribute: " + calls[callIndex]);
+            }
+        }
+
+        delegate.endVertex();
+    }
+
+    /**
+     * Discards all recorded calls for the current quad.
+     */
+    private void clearQuad() {
+        currentVertex = 0;
+        Arrays.fill(CALL_COUNTS, 0);
+        Arrays.fill(SET_ATTRIBUTES, 0);
     }
 
 }
@@ -21,46 +21,61 @@ import com.mojang.blaze3d.vertex.VertexConsumer;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.client.renderer.RenderType;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.function.Consumer;
+import static java.util.Objects.requireNonNull;
 
 /**
- * Wraps render buffer sources so that an action is run when a buffer is retrieved.
+ * Wraps render buffer sources so that the {@link EntityRenderingState} is updated when a buffer is retrieved.
+ * Wrappers are owned by a rendering state and re-pointed at a new buffer source for each render instead of
+ * being created for each entity.
  * @author soir20
  */
 @MethodsReturnNonnullByDefault
 public final class WrappedBufferSource implements MultiBufferSource {
-    private final MultiBufferSource DELEGATE;
-    private final Consumer<RenderType> ACTION;
+    private final EntityRenderingState STATE;
+    @Nullable
+    private MultiBufferSource delegate;
+    private boolean isBlockEntity;
 
     /**
-     * Wraps the given buffer source so that it runs the given action when a buffer is retrieved.
-     * @param bufferSource      buffer source to wrap
-     * @param action            action to perform when a buffer is retrieved from the source
-     * @return wrapped buffer source
+     * Creates a new wrapped buffer source that is not pointed at any buffer source.
+     * @param state     rendering state to update when a buffer is retrieved
      */
-    public static MultiBufferSource wrap(MultiBufferSource bufferSource, Consumer<RenderType> action) {
-        if (bufferSource instanceof WrappedBufferSource) {
-            return bufferSource;
-        }
-
-        return new WrappedBufferSource(bufferSource, action);
+    public WrappedBufferSource(EntityRenderingState state) {
+        STATE = requireNonNull(state, "State cannot be null");
     }
 
     @Override
     public VertexConsumer getBuffer(RenderType renderType) {
-        ACTION.accept(renderType);
-        return DELEGATE.getBuffer(renderType);
+        STATE.setRenderType(renderType, isBlockEntity);
+        return requireNonNull(delegate, "Wrapped buffer source used outside of a render").getBuffer(renderType);
+    }
+
+    /**
+     * Points this wrapper at a new buffer source.
+     * @param delegate          buffer source to wrap
+     * @param isBlockEntity     whether the buffer source is used to render a block entity
+     */
+    public void reset(MultiBufferSource delegate, boolean isBlockEntity) {
+        this.delegate = requireNonNull(delegate, "Delegate cannot be null");
+        this.isBlockEntity = isBlockEntity;
+    }
+
+    /**
+     * Stops wrapping the current buffer source so that it is not retained after rendering.
+     */
+    public void clear() {
+        delegate = null;
     }
 
     /**
-     * Creates a new wrapped buffer source.
-     * @param delegate      buffer source to wrap
-     * @param action        action to perform when a buffer is retrieved from the source
+     * Gets the buffer source this wrapper currently wraps.
+     * @return wrapped buffer source or null if the wrapper is not in use
      */
-    private WrappedBufferSource(MultiBufferSource delegate, Consumer<RenderType> action) {
-        DELEGATE = delegate;
-        ACTION = action;
+    @Nullable
+    public MultiBufferSource delegate() {
+        return delegate;
     }
 
 }
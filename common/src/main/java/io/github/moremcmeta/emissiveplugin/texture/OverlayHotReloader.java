@@ -0,0 +1,513 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.texture;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonObject;
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.emissiveplugin.OverlayReloadListeners;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlayMetadata;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlayMetadataAnalyzer;
+import io.github.moremcmeta.moremcmeta.api.client.metadata.InvalidMetadataException;
+import io.github.moremcmeta.moremcmeta.api.client.texture.SpriteName;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.MipmapGenerator;
+import net.minecraft.client.renderer.texture.MissingTextureAtlasSprite;
+import net.minecraft.client.renderer.texture.SpriteContents;
+import net.minecraft.client.renderer.texture.TextureAtlas;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.resources.metadata.animation.AnimationMetadataSection;
+import net.minecraft.client.resources.metadata.animation.FrameSize;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.util.GsonHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reloads overlay textures without a full resource reload when only their image content changed. The overlay
+ * metadata on base textures and the layout of each overlay sprite are recorded while the block atlas is stitched,
+ * which needs no extra reads. An overlay reload reads the base textures' metadata again and compares it to the
+ * recorded metadata, then reads each overlay and compares its layout. Changed overlays that keep the same layout
+ * are copied into their existing sprites and uploaded again. Because the atlas layout does not change, the sprite
+ * finder, overlay index, and baked models all stay valid. Any change that would add, remove, or move a sprite
+ * falls back to a full reload.<br>
+ * <br>
+ * Image hashes are only computed by overlay reloads. The first overlay reload after the atlas is stitched
+ * compares every overlay's pixels to its sprite, and later overlay reloads skip overlays whose hash did not
+ * change. Only overlay metadata in .mcmeta files is read again, so other metadata formats always cause a full
+ * reload because their overlays are not found.
+ * @author soir20
+ */
+public final class OverlayHotReloader {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String TEXTURES_DIRECTORY = "textures";
+    private static final String METADATA_EXTENSION = ".mcmeta";
+    private static final String TEXTURE_METADATA_SUFFIX = ".png" + METADATA_EXTENSION;
+    private static volatile StitchedOverlays stitched = new StitchedOverlays(Map.of(), Map.of());
+    private static volatile StitchedOverlays staged = stitched;
+
+    static {
+        OverlayReloadListeners.register(() -> stitched = staged);
+    }
+
+    /**
+     * Records the overlays stitched to the next block atlas. They are used once the atlas is uploaded.
+     * @param baseMetadata      overlay metadata by the full path of the base texture it belongs to
+     * @param layouts           layouts of the overlay sprites by overlay sprite name
+     */
+    public static void stage(Map<ResourceLocation, OverlayMetadata> baseMetadata,
+                             Map<ResourceLocation, OverlayLayout> layouts) {
+        staged = new StitchedOverlays(
+                requireNonNull(baseMetadata, "Base metadata cannot be null"),
+                requireNonNull(layouts, "Layouts cannot be null")
+        );
+    }
+
+    /**
+     * Reloads all overlays whose images changed since the last full reload. Resources are read and decoded in
+     * the background, and changed sprites are uploaded on the render thread. Starts a full reload instead if any
+     * overlay cannot be updated in place.
+     * @return future that completes once the overlays are reloaded or a full reload has started
+     */
+    public static CompletableFuture<Void> reloadOverlays() {
+        Minecraft minecraft = Minecraft.getInstance();
+        ResourceManager resourceManager = minecraft.getResourceManager();
+        StitchedOverlays previous = stitched;
+
+        return CompletableFuture.supplyAsync(
+                () -> findChanges(resourceManager, previous),
+                Util.backgroundExecutor()
+        ).thenAcceptAsync((changes) -> {
+            if (changes.isEmpty() || !apply(minecraft, previous, changes.get())) {
+                minecraft.reloadResourcePacks();
+            }
+        }, minecraft);
+    }
+
+    /**
+     * Reads all overlays that may have changed.
+     * @param resourceManager       resource manager to read the overlays from
+     * @param previous              overlays currently stitched to the block atlas
+     * @return overlays whose images may have changed or empty if the atlas has to be stitched again
+     */
+    private static Optional<List<ChangedOverlay>> findChanges(ResourceManager resourceManager,
+                                                              StitchedOverlays previous) {
+        if (!readBaseMetadata(resourceManager).equals(previous.baseMetadata())) {
+            LOGGER.info("Overlay metadata on base textures was added, removed, or changed");
+            return Optional.empty();
+        }
+
+        List<ChangedOverlay> changes = new ArrayList<>();
+
+        for (Map.Entry<ResourceLocation, OverlayLayout> entry : previous.layouts().entrySet()) {
+            ResourceLocation spriteName = entry.getKey();
+            OverlayLayout previousLayout = entry.getValue();
+            ResourceLocation texturePath = SpriteName.toTexturePath(spriteName);
+            Optional<Resource> resource = resourceManager.getResource(texturePath);
+
+            if (resource.isEmpty()) {
+                LOGGER.info("Overlay {} was removed", texturePath);
+                closeAll(changes);
+                return Optional.empty();
+            }
+
+            try {
+                byte[] encoded;
+                try (InputStream stream = resource.get().open()) {
+                    encoded = stream.readAllBytes();
+                }
+
+                AnimationMetadataSection animation = resource.get().metadata()
+                        .getSection(AnimationMetadataSection.SERIALIZER)
+                        .orElse(AnimationMetadataSection.EMPTY);
+                HashCode imageHash = Hashing.murmur3_128().hashBytes(encoded);
+
+                // An unchanged image has the same size, so only its metadata can change the layout
+                if (imageHash.equals(previous.imageHashes().get(spriteName))) {
+                    if (!previousLayout.equals(new OverlayLayout(
+                            animation,
+                            previousLayout.width(),
+                            previousLayout.height()
+                    ))) {
+                        LOGGER.info("Overlay {} has a new layout and must be stitched again", texturePath);
+                        closeAll(changes);
+                        return Optional.empty();
+                    }
+
+                    continue;
+                }
+
+                NativeImage image = NativeImage.read(new ByteArrayInputStream(encoded));
+                if (!previousLayout.equals(new OverlayLayout(animation, image.getWidth(), image.getHeight()))) {
+                    LOGGER.info("Overlay {} has a new layout and must be stitched again", texturePath);
+                    image.close();
+                    closeAll(changes);
+                    return Optional.empty();
+                }
+
+                changes.add(new ChangedOverlay(spriteName, image, imageHash));
+            } catch (IOException err) {
+                LOGGER.error("Unable to read overlay {} during an overlay reload: {}", texturePath, err);
+                closeAll(changes);
+                return Optional.empty();
+            }
+        }
+
+        return Optional.of(changes);
+    }
+
+    /**
+     * Reads the overlay metadata of all base textures from their .mcmeta files, the same way as MoreMcmeta reads
+     * it during a full reload. Textures with invalid metadata or without an image are skipped because MoreMcmeta
+     * does not record metadata for them.
+     * @param resourceManager       resource manager to read the metadata from
+     * @return overlay metadata by the full path of the base texture it belongs to
+     */
+    private static Map<ResourceLocation, OverlayMetadata> readBaseMetadata(ResourceManager resourceManager) {
+        Map<ResourceLocation, Resource> metadataFiles = resourceManager.listResources(
+                TEXTURES_DIRECTORY,
+                (location) -> location.getPath().endsWith(TEXTURE_METADATA_SUFFIX)
+        );
+
+        Map<ResourceLocation, OverlayMetadata> baseMetadata = new HashMap<>();
+        metadataFiles.forEach((metadataLocation, resource) -> {
+            String metadataPath = metadataLocation.getPath();
+            ResourceLocation texturePath = metadataLocation.withPath(
+                    metadataPath.substring(0, metadataPath.length() - METADATA_EXTENSION.length())
+            );
+
+            try (Reader reader = resource.openAsReader()) {
+                JsonObject root = GsonHelper.parse(reader);
+                if (!GsonHelper.isObjectNode(root, ModConstants.SECTION_NAME)
+                        || resourceManager.getResource(texturePath).isEmpty()) {
+                    return;
+                }
+
+                JsonObject section = GsonHelper.getAsJsonObject(root, ModConstants.SECTION_NAME);
+                baseMetadata.put(texturePath, OverlayMetadataAnalyzer.fromValues(
+                        GsonHelper.isStringValue(section, "texture")
+                                ? Optional.of(GsonHelper.getAsString(section, "texture"))
+                                : Optional.empty(),
+                        GsonHelper.isBooleanValue(section, "emissive")
+                                ? Optional.of(GsonHelper.getAsBoolean(section, "emissive"))
+                                : Optional.empty(),
+                        GsonHelper.isStringValue(section, "transparency")
+                                ? Optional.of(GsonHelper.getAsString(section, "transparency"))
+                                : Optional.empty()
+                ));
+            } catch (IOException | RuntimeException | InvalidMetadataException err) {
+                LOGGER.debug("Skipping unreadable metadata {} during an overlay reload: {}", metadataLocation, err);
+            }
+        });
+
+        return baseMetadata;
+    }
+
+    /**
+     * Copies changed overlays into their sprites and uploads them. Nothing is uploaded unless every changed
+     * overlay has the same size as its sprite. Overlays whose pixels match their sprite are not uploaded.
+     * @param minecraft             Minecraft client
+     * @param previous              overlays currently stitched to the block atlas
+     * @param changes               overlays whose images may have changed
+     * @return whether all changes were applied
+     */
+    private static boolean apply(Minecraft minecraft, StitchedOverlays previous, List<ChangedOverlay> changes) {
+        RenderSystem.assertOnRenderThread();
+
+        try {
+            // A full reload replaced the atlas while the overlays were read, so it already has the new images
+            if (previous != stitched) {
+                return true;
+            }
+
+            TextureAtlas atlas = minecraft.getModelManager().getAtlas(TextureAtlas.LOCATION_BLOCKS);
+            List<TextureAtlasSprite> sprites = new ArrayList<>(changes.size());
+            for (ChangedOverlay change : changes) {
+                TextureAtlasSprite sprite = atlas.getSprite(change.spriteName());
+                NativeImage originalImage = sprite.contents().originalImage;
+
+                if (sprite.contents().name().equals(MissingTextureAtlasSprite.getLocation())
+                        || originalImage.getWidth() != change.image().getWidth()
+                        || originalImage.getHeight() != change.image().getHeight()
+                        || originalImage.format() != change.image().format()) {
+                    LOGGER.info("Overlay {} changed size and must be stitched again", change.spriteName());
+                    return false;
+                }
+
+                sprites.add(sprite);
+            }
+
+            int uploaded = 0;
+            atlas.bind();
+            for (int index = 0; index < changes.size(); index++) {
+                ChangedOverlay change = changes.get(index);
+                TextureAtlasSprite sprite = sprites.get(index);
+
+                // The first overlay reload has no hashes, so every overlay is compared to its sprite
+                if (!hasSamePixels(sprite.contents().originalImage, change.image())) {
+                    copyImage(sprite.contents(), change.image());
+                    sprite.uploadFirstFrame();
+                    uploaded++;
+                }
+
+                previous.imageHashes().put(change.spriteName(), change.hash());
+            }
+
+            LOGGER.info("Reloaded {} overlay textures in place", uploaded);
+            return true;
+        } finally {
+            closeAll(changes);
+        }
+    }
+
+    /**
+     * Checks whether two images of the same size and format have the same pixels.
+     * @param first         first image
+     * @param second        second image
+     * @return whether the images have the same pixels
+     */
+    private static boolean hasSamePixels(NativeImage first, NativeImage second) {
+        if (first.format() != NativeImage.Format.RGBA) {
+            return false;
+        }
+
+        for (int y = 0; y < first.getHeight(); y++) {
+            for (int x = 0; x < first.getWidth(); x++) {
+                if (first.getPixelRGBA(x, y) != second.getPixelRGBA(x, y)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies an image into a sprite and regenerates the sprite's mipmaps. Animation frames are read from the
+     * sprite's images, so animated overlays also use the new image.
+     * @param contents      sprite to copy into
+     * @param image         image with the same size and format as the sprite's original image
+     */
+    private static void copyImage(SpriteContents contents, NativeImage image) {
+        contents.originalImage.copyFrom(image);
+
+        NativeImage[] mipmaps = contents.byMipLevel;
+        if (mipmaps.length <= 1) {
+            return;
+        }
+
+        NativeImage[] newMipmaps = MipmapGenerator.generateMipLevels(
+                new NativeImage[] { contents.originalImage },
+                mipmaps.length - 1
+        );
+        for (int level = 1; level < mipmaps.length; level++) {
+            mipmaps[level].copyFrom(newMipmaps[level]);
+            newMipmaps[level].close();
+        }
+    }
+
+    /**
+     * Releases the images of all changed overlays.
+     * @param changes       changed overlays to release
+     */
+    private static void closeAll(List<ChangedOverlay> changes) {
+        changes.forEach((change) -> change.image().close());
+    }
+
+    /**
+     * Size and animation of an overlay sprite, which determine where its frames are placed in the atlas.
+     * @author soir20
+     */
+    public static final class OverlayLayout {
+        private final int WIDTH;
+        private final int HEIGHT;
+        private final String ANIMATION;
+
+        /**
+         * Creates a new overlay layout.
+         * @param animation     animation metadata of the overlay
+         * @param width         width of the overlay image
+         * @param height        height of the overlay image
+         */
+        public OverlayLayout(AnimationMetadataSection animation, int width, int height) {
+            requireNonNull(animation, "Animation cannot be null");
+            WIDTH = width;
+            HEIGHT = height;
+
+            FrameSize frameSize = animation.calculateFrameSize(width, height);
+            StringBuilder description = new StringBuilder()
+                    .append(frameSize.width()).append('x').append(frameSize.height())
+                    .append(';').append(animation.getDefaultFrameTime())
+                    .append(';').append(animation.isInterpolatedFrames());
+            animation.forEachFrame((index, time) -> description.append(';').append(index).append(':').append(time));
+            ANIMATION = description.toString();
+        }
+
+        /**
+         * Gets the width of the overlay image.
+         * @return width of the overlay image
+         */
+        public int width() {
+            return WIDTH;
+        }
+
+        /**
+         * Gets the height of the overlay image.
+         * @return height of the overlay image
+         */
+        public int height() {
+            return HEIGHT;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+
+            if (!(other instanceof OverlayLayout otherLayout)) {
+                return false;
+            }
+
+            return WIDTH == otherLayout.WIDTH && HEIGHT == otherLayout.HEIGHT
+                    && ANIMATION.equals(otherLayout.ANIMATION);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * WIDTH + HEIGHT) + ANIMATION.hashCode();
+        }
+
+    }
+
+    /**
+     * Overlays stitched to one block atlas, along with the image hashes recorded by overlay reloads.
+     * @author soir20
+     */
+    private static final class StitchedOverlays {
+        private final Map<ResourceLocation, OverlayMetadata> BASE_METADATA;
+        private final Map<ResourceLocation, OverlayLayout> LAYOUTS;
+        private final Map<ResourceLocation, HashCode> IMAGE_HASHES;
+
+        /**
+         * Creates new stitched overlays without any image hashes.
+         * @param baseMetadata      overlay metadata by the full path of the base texture it belongs to
+         * @param layouts           layouts of the overlay sprites by overlay sprite name
+         */
+        public StitchedOverlays(Map<ResourceLocation, OverlayMetadata> baseMetadata,
+                                Map<ResourceLocation, OverlayLayout> layouts) {
+            BASE_METADATA = Map.copyOf(baseMetadata);
+            LAYOUTS = Map.copyOf(layouts);
+            IMAGE_HASHES = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * Gets the overlay metadata of base textures when the atlas was stitched.
+         * @return overlay metadata by the full path of the base texture it belongs to
+         */
+        public Map<ResourceLocation, OverlayMetadata> baseMetadata() {
+            return BASE_METADATA;
+        }
+
+        /**
+         * Gets the layouts of the overlay sprites in the atlas.
+         * @return layouts of the overlay sprites by overlay sprite name
+         */
+        public Map<ResourceLocation, OverlayLayout> layouts() {
+            return LAYOUTS;
+        }
+
+        /**
+         * Gets the hashes of the overlay images currently in the atlas. Only overlays checked by an overlay
+         * reload have a hash.
+         * @return hashes of the overlay images by overlay sprite name
+         */
+        public Map<ResourceLocation, HashCode> imageHashes() {
+            return IMAGE_HASHES;
+        }
+
+    }
+
+    /**
+     * An overlay whose image may have changed since its sprite was stitched.
+     * @author soir20
+     */
+    private static final class ChangedOverlay {
+        private final ResourceLocation SPRITE_NAME;
+        private final NativeImage IMAGE;
+        private final HashCode HASH;
+
+        /**
+         * Creates a new changed overlay.
+         * @param spriteName        name of the overlay sprite
+         * @param image             new overlay image
+         * @param hash              hash of the new encoded overlay image
+         */
+        public ChangedOverlay(ResourceLocation spriteName, NativeImage image, HashCode hash) {
+            SPRITE_NAME = spriteName;
+            IMAGE = image;
+            HASH = hash;
+        }
+
+        /**
+         * Gets the name of the overlay sprite.
+         * @return name of the overlay sprite
+         */
+        public ResourceLocation spriteName() {
+            return SPRITE_NAME;
+        }
+
+        /**
+         * Gets the new overlay image.
+         * @return new overlay image
+         */
+        public NativeImage image() {
+            return IMAGE;
+        }
+
+        /**
+         * Gets the hash of the new encoded overlay image.
+         * @return hash of the new encoded overlay image
+         */
+        public HashCode hash() {
+            return HASH;
+        }
+
+    }
+
+}
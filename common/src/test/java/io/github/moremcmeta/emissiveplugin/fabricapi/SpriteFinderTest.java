@@ -0,0 +1,217 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.fabricapi;
+
+import net.minecraft.client.renderer.texture.SpriteContents;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the {@link SpriteFinder} against the original quad tree implementation in {@link ReferenceSpriteFinder}.
+ * @author soir20
+ */
+public final class SpriteFinderTest {
+    private static final int GRID_SIZE = 512;
+
+    @Test
+    public void find_NoSprites_NotFound() {
+        SpriteFinder spriteFinder = new SpriteFinder(List.of());
+
+        assertEquals(0, spriteFinder.spriteCount());
+        assertEquals(SpriteFinder.NOT_FOUND, spriteFinder.findIndex(0.5f, 0.5f));
+        assertNull(spriteFinder.find(0.5f, 0.5f));
+    }
+
+    @Test
+    public void find_SingleSpriteFillsAtlas_SpriteFoundEverywhere() {
+        TextureAtlasSprite sprite = sprite(0, 0, 16, 16, 16, 16);
+        SpriteFinder spriteFinder = new SpriteFinder(List.of(sprite));
+
+        assertSame(sprite, spriteFinder.find(0.1f, 0.9f));
+        assertSame(sprite, spriteFinder.sprite(spriteFinder.findIndex(0.9f, 0.1f)));
+    }
+
+    @Test
+    public void find_UniformGrid_SameAsReference() {
+        List<TextureAtlasSprite> sprites = new ArrayList<>();
+        for (int x = 0; x < 256; x += 16) {
+            for (int y = 0; y < 256; y += 16) {
+                sprites.add(sprite(x, y, 16, 16, 256, 256));
+            }
+        }
+
+        assertSameAsReference(sprites);
+    }
+
+    @Test
+    public void find_NonSquareAtlas_SameAsReference() {
+        List<TextureAtlasSprite> sprites = new ArrayList<>();
+        for (int x = 0; x < 512; x += 32) {
+            for (int y = 0; y < 128; y += 16) {
+                sprites.add(sprite(x, y, 32, 16, 512, 128));
+            }
+        }
+
+        assertSameAsReference(sprites);
+    }
+
+    @Test
+    public void find_SpritesWithGaps_SameAsReference() {
+        List<TextureAtlasSprite> sprites = new ArrayList<>();
+        for (int x = 0; x < 256; x += 32) {
+            for (int y = 0; y < 256; y += 32) {
+                sprites.add(sprite(x + 4, y + 4, 20, 12, 256, 256));
+            }
+        }
+
+        assertSameAsReference(sprites);
+    }
+
+    @Test
+    public void find_MixedSizesPacked_SameAsReference() {
+        Random random = new Random(20);
+
+        for (int layout = 0; layout < 10; layout++) {
+            assertSameAsReference(packedSprites(random, 1024, 1024));
+        }
+    }
+
+    @Test
+    public void find_MixedSizesPackedNonSquareAtlas_SameAsReference() {
+        Random random = new Random(4);
+
+        for (int layout = 0; layout < 10; layout++) {
+            assertSameAsReference(packedSprites(random, 2048, 512));
+        }
+    }
+
+    @Test
+    public void find_SpriteWithBrokenBounds_SpriteSkipped() {
+        TextureAtlasSprite valid = sprite(0, 0, 8, 8, 16, 16);
+        TextureAtlasSprite broken = sprite(8, 8, 16, 16, 16, 16);
+        when(broken.contents()).thenReturn(mock(SpriteContents.class));
+        SpriteFinder spriteFinder = new SpriteFinder(List.of(valid, broken));
+
+        assertSame(valid, spriteFinder.find(0.25f, 0.25f));
+        assertNull(spriteFinder.find(0.75f, 0.75f));
+    }
+
+    /**
+     * Checks that both implementations find the same sprite at points inside each sprite and at a dense grid of
+     * points across the atlas, including the gaps between sprites and sprite edges.
+     * @param sprites       sprites in the atlas
+     */
+    private static void assertSameAsReference(List<TextureAtlasSprite> sprites) {
+        SpriteFinder spriteFinder = new SpriteFinder(sprites);
+        ReferenceSpriteFinder reference = new ReferenceSpriteFinder(sprites);
+
+        for (TextureAtlasSprite sprite : sprites) {
+            for (float uProportion = 0.125f; uProportion < 1; uProportion += 0.25f) {
+                for (float vProportion = 0.125f; vProportion < 1; vProportion += 0.25f) {
+                    float u = sprite.getU0() + (sprite.getU1() - sprite.getU0()) * uProportion;
+                    float v = sprite.getV0() + (sprite.getV1() - sprite.getV0()) * vProportion;
+                    assertSameAsReference(spriteFinder, reference, u, v);
+                }
+            }
+        }
+
+        for (int uStep = 0; uStep <= GRID_SIZE; uStep++) {
+            for (int vStep = 0; vStep <= GRID_SIZE; vStep++) {
+                assertSameAsReference(spriteFinder, reference, (float) uStep / GRID_SIZE, (float) vStep / GRID_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Checks that both implementations find the same sprite at a single point.
+     * @param spriteFinder      sprite finder to check
+     * @param reference         original implementation
+     * @param u                 u-coordinate to look up
+     * @param v                 v-coordinate to look up
+     */
+    private static void assertSameAsReference(SpriteFinder spriteFinder, ReferenceSpriteFinder reference,
+                                              float u, float v) {
+        assertSame(
+                "Sprite at (" + u + ", " + v + ") differs",
+                reference.find(u, v).orElse(null),
+                spriteFinder.find(u, v)
+        );
+    }
+
+    /**
+     * Packs sprites with random power-of-two sizes into rows, like the atlas stitcher does for most resource packs.
+     * @param random        source of sprite sizes
+     * @param atlasWidth    width of the atlas in pixels
+     * @param atlasHeight   height of the atlas in pixels
+     * @return sprites that fit in the atlas
+     */
+    private static List<TextureAtlasSprite> packedSprites(Random random, int atlasWidth, int atlasHeight) {
+        List<TextureAtlasSprite> sprites = new ArrayList<>();
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+
+        while (true) {
+            int width = 1 << (2 + random.nextInt(5));
+            int height = random.nextInt(4) == 0 ? width * 2 : width;
+
+            if (x + width > atlasWidth) {
+                x = 0;
+                y += rowHeight;
+                rowHeight = 0;
+            }
+
+            if (y + height > atlasHeight) {
+                return sprites;
+            }
+
+            sprites.add(sprite(x, y, width, height, atlasWidth, atlasHeight));
+            x += width;
+            rowHeight = Math.max(rowHeight, height);
+        }
+    }
+
+    /**
+     * Creates a mock sprite with the same coordinates as a real sprite at the given position in an atlas.
+     * @param x             x-coordinate of the sprite's top-left corner in pixels
+     * @param y             y-coordinate of the sprite's top-left corner in pixels
+     * @param width         width of the sprite in pixels
+     * @param height        height of the sprite in pixels
+     * @param atlasWidth    width of the atlas in pixels
+     * @param atlasHeight   height of the atlas in pixels
+     * @return mock sprite
+     */
+    private static TextureAtlasSprite sprite(int x, int y, int width, int height, int atlasWidth, int atlasHeight) {
+        TextureAtlasSprite sprite = mock(TextureAtlasSprite.class);
+        when(sprite.getU0()).thenReturn((float) x / atlasWidth);
+        when(sprite.getU1()).thenReturn((float) (x + width) / atlasWidth);
+        when(sprite.getV0()).thenReturn((float) y / atlasHeight);
+        when(sprite.getV1()).thenReturn((float) (y + height) / atlasHeight);
+        return sprite;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.render;
+
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import io.github.moremcmeta.emissiveplugin.OverlayReloadListeners;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.texture.OverlayTexture;
+import net.minecraft.resources.ResourceLocation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the {@link CustomRenderTypes}.
+ * @author soir20
+ */
+public final class CustomRenderTypesTest {
+    private static final ResourceLocation TEXTURE = new ResourceLocation("textures/entity/zombie/zombie.png");
+    private static final ResourceLocation OTHER_TEXTURE = new ResourceLocation("textures/entity/creeper/creeper.png");
+
+    @Test(expected = NullPointerException.class)
+    public void entityTranslucentZLayering_NullTexture_NullPointerException() {
+        CustomRenderTypes.entityTranslucentZLayering(null);
+    }
+
+    @Test
+    public void entityTranslucentZLayering_SameTexture_SameRenderType() {
+        RenderType first = CustomRenderTypes.entityTranslucentZLayering(TEXTURE);
+        RenderType second = CustomRenderTypes.entityTranslucentZLayering(TEXTURE);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void entityTranslucentZLayering_EqualTextures_SameRenderType() {
+        RenderType first = CustomRenderTypes.entityTranslucentZLayering(TEXTURE);
+        RenderType second = CustomRenderTypes.entityTranslucentZLayering(
+                new ResourceLocation(TEXTURE.getNamespace(), TEXTURE.getPath())
+        );
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void entityTranslucentZLayering_DifferentTextures_DifferentRenderTypes() {
+        RenderType first = CustomRenderTypes.entityTranslucentZLayering(TEXTURE);
+        RenderType second = CustomRenderTypes.entityTranslucentZLayering(OTHER_TEXTURE);
+
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void entityTranslucentZLayering_AfterReload_NewRenderType() {
+        RenderType beforeReload = CustomRenderTypes.entityTranslucentZLayering(TEXTURE);
+        OverlayReloadListeners.onBlockAtlasReload();
+        RenderType afterReload = CustomRenderTypes.entityTranslucentZLayering(TEXTURE);
+
+        assertNotSame(beforeReload, afterReload);
+        assertSame(afterReload, CustomRenderTypes.entityTranslucentZLayering(TEXTURE));
+    }
+
+    @Test
+    public void entityTranslucentZLayering_ManyEntitiesSameOverlay_OneBatch() {
+        BatchCountingBufferSource bufferSource = new BatchCountingBufferSource();
+
+        // Each entity resolves its own overlay, as the entity overlay cache does for each sprite or render type
+        List<EntityOverlay> overlays = new ArrayList<>();
+        for (int entity = 0; entity < 10; entity++) {
+            overlays.add(new EntityOverlay(
+                    CustomRenderTypes.entityTranslucentZLayering(new ResourceLocation(TEXTURE.toString())),
+                    null,
+                    TEXTURE,
+                    true
+            ));
+        }
+
+        overlays.forEach((overlay) -> renderQuad(overlay.buffer(bufferSource)));
+        bufferSource.endBatch();
+
+        assertEquals(List.of(CustomRenderTypes.entityTranslucentZLayering(TEXTURE)), bufferSource.endedBatches());
+    }
+
+    @Test
+    public void entityTranslucentZLayering_EntitiesDifferentOverlays_BatchPerOverlay() {
+        BatchCountingBufferSource bufferSource = new BatchCountingBufferSource();
+        RenderType first = CustomRenderTypes.entityTranslucentZLayering(TEXTURE);
+        RenderType second = CustomRenderTypes.entityTranslucentZLayering(OTHER_TEXTURE);
+
+        renderQuad(bufferSource.getBuffer(first));
+        renderQuad(bufferSource.getBuffer(first));
+        renderQuad(bufferSource.getBuffer(second));
+        bufferSource.endBatch();
+
+        assertEquals(List.of(first, second), bufferSource.endedBatches());
+    }
+
+    /**
+     * Renders a single quad of an overlay part.
+     * @param buffer        buffer to render the quad to
+     */
+    private static void renderQuad(VertexConsumer buffer) {
+        for (int vertex = 0; vertex < 4; vertex++) {
+            buffer.vertex(
+                    vertex & 1, vertex >> 1, 0,
+                    1, 1, 1, 1,
+                    vertex & 1, vertex >> 1,
+                    OverlayTexture.NO_OVERLAY, LightTexture.FULL_BRIGHT,
+                    0, 0, 1
+            );
+        }
+    }
+
+    /**
+     * Buffer source that records each batch it ends instead of drawing it, so that batching can be tested
+     * without a render thread.
+     * @author soir20
+     */
+    private static final class BatchCountingBufferSource extends MultiBufferSource.BufferSource {
+        private final List<RenderType> ENDED_BATCHES = new ArrayList<>();
+
+        /**
+         * Creates a new buffer source without any fixed buffers.
+         */
+        public BatchCountingBufferSource() {
+            super(new BufferBuilder(256), Map.of());
+        }
+
+        @Override
+        public void endBatch(RenderType renderType) {
+            ENDED_BATCHES.add(renderType);
+        }
+
+        /**
+         * Gets the render types of all batches ended so far in order.
+         * @return render types of the ended batches
+         */
+        public List<RenderType> endedBatches() {
+            return ENDED_BATCHES;
+        }
+
+    }
+
+}
@@ -17,14 +17,12 @@
 
 package io.github.moremcmeta.emissiveplugin.fabric.mixin;
 
-import io.github.moremcmeta.emissiveplugin.ModConstants;
 import io.github.moremcmeta.emissiveplugin.fabric.model.OverlayBakedModel;
-import net.minecraft.client.renderer.block.model.BlockModel;
-import net.minecraft.client.renderer.block.model.MultiVariant;
-import net.minecraft.client.renderer.block.model.multipart.MultiPart;
+import io.github.moremcmeta.emissiveplugin.fabric.model.OverlayModelClassifier;
+import io.github.moremcmeta.emissiveplugin.jfr.ModelWrapEvent;
+import io.github.moremcmeta.emissiveplugin.model.OverlayModelDetector;
 import net.minecraft.client.resources.model.BakedModel;
 import net.minecraft.client.resources.model.BuiltInModel;
-import net.minecraft.client.resources.model.Material;
 import net.minecraft.client.resources.model.ModelBakery;
 import net.minecraft.client.resources.model.ModelState;
 import net.minecraft.client.resources.model.MultiPartBakedModel;
@@ -37,10 +35,6 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.spongepowered.asm.mixin.injection.callback.LocalCapture;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
-
 /**
  * Wraps all models with an overlay. The wrapper checks if an overlay is needed when quads are
  * retrieved; wrapping all models does not give them all an overlay.
@@ -61,9 +55,12 @@ public final class ModelBakeryMixin {
     @Inject(method = "bake", at = @At("RETURN"), cancellable = true, locals = LocalCapture.CAPTURE_FAILHARD)
     private void moremcmeta_emissive_wrapModels(ResourceLocation modelLocation, ModelState state,
                                                 CallbackInfoReturnable<BakedModel> callbackInfo) {
+        ModelWrapEvent event = new ModelWrapEvent();
+        event.begin();
+
         ModelBakery.ModelBakerImpl bakeryImpl = (ModelBakery.ModelBakerImpl) (Object) this;
         UnbakedModel unbakedModel = bakeryImpl.getModel(modelLocation);
-        boolean usesOverlay = moremcmeta_emissive_usesOverlay(bakeryImpl, unbakedModel);
+        boolean usesOverlay = OverlayModelDetector.usesOverlay(unbakedModel, bakeryImpl::getModel);
 
         BakedModel original = callbackInfo.getReturnValue();
         BakedModel resultModel = original;
@@ -75,57 +72,14 @@ public final class ModelBakeryMixin {
             callbackInfo.setReturnValue(resultModel);
         }
 
+        event.finish(modelLocation, original, usesOverlay, resultModel != original);
+
+        OverlayModelClassifier.recordBakedModel(resultModel, usesOverlay);
+
         ModelBakery.BakedCacheKey key = new ModelBakery.BakedCacheKey(modelLocation, state.getRotation(), state.isUvLocked());
         if (bakery != null && bakery.bakedCache.containsKey(key)) {
             bakery.bakedCache.put(key, resultModel);
         }
     }
 
-    /**
-     * Checks whether a model needs to be wrapped with an overlay model.
-     * @param bakeryImpl    model bakery
-     * @param model         model to check
-     * @return whether the model needs to be wrapped with an overlay model
-     */
-    @Unique
-    private boolean moremcmeta_emissive_usesOverlay(ModelBakery.ModelBakerImpl bakeryImpl, UnbakedModel model) {
-        boolean usesOverlay = true;
-
-        // Filter out block models for which we can check materials to improve performance
-        if (model instanceof BlockModel blockModel) {
-            Set<Material> materials = moremcmeta_emissive_modelMaterials(blockModel).stream()
-                    .map(blockModel::getMaterial)
-                    .collect(Collectors.toSet());
-            usesOverlay = ModConstants.USES_OVERLAY.test(materials);
-        } else if (model instanceof MultiPart multiPartModel) {
-            usesOverlay = multiPartModel.getMultiVariants().stream()
-                    .anyMatch((part) -> moremcmeta_emissive_usesOverlay(bakeryImpl, part));
-        } else if (model instanceof MultiVariant multiVariantModel) {
-            usesOverlay = multiVariantModel.getVariants().stream()
-                    .anyMatch((variant) -> moremcmeta_emissive_usesOverlay(
-                            bakeryImpl,
-                            bakeryImpl.getModel(variant.getModelLocation())
-                    ));
-        }
-
-        return usesOverlay;
-    }
-
-    /**
-     * Gets all materials for a given model.
-     * @param model     model to retrieve materials for
-     * @return all materials in this model and its parent models
-     */
-    private Set<String> moremcmeta_emissive_modelMaterials(BlockModel model) {
-        Set<String> materials = new HashSet<>();
-
-        BlockModel currentModel = model;
-        while (currentModel != null) {
-            materials.addAll(currentModel.textureMap.keySet());
-            currentModel = currentModel.parent;
-        }
-
-        return materials;
-    }
-
 }
@@ -17,15 +17,18 @@
 
 package io.github.moremcmeta.emissiveplugin.fabric.model;
 
-import io.github.moremcmeta.emissiveplugin.ModConstants;
-import io.github.moremcmeta.emissiveplugin.metadata.OverlayMetadata;
+import io.github.moremcmeta.emissiveplugin.jfr.SectionOverlayEvent;
+import io.github.moremcmeta.emissiveplugin.metadata.OverlaySpriteIndex;
+import io.github.moremcmeta.emissiveplugin.metadata.ResolvedOverlay;
 import io.github.moremcmeta.emissiveplugin.metadata.TransparencyMode;
-import io.github.moremcmeta.emissiveplugin.model.OverlayQuadFunction;
-import io.github.moremcmeta.moremcmeta.api.client.metadata.MetadataRegistry;
+import io.github.moremcmeta.emissiveplugin.metadata.UvRemap;
+import io.github.moremcmeta.emissiveplugin.mixinaccess.SpriteFinderSupplier;
+import io.github.moremcmeta.emissiveplugin.render.OverlayStatistics;
 import net.fabricmc.fabric.api.renderer.v1.Renderer;
 import net.fabricmc.fabric.api.renderer.v1.RendererAccess;
 import net.fabricmc.fabric.api.renderer.v1.material.BlendMode;
 import net.fabricmc.fabric.api.renderer.v1.material.RenderMaterial;
+import net.fabricmc.fabric.api.renderer.v1.mesh.Mesh;
 import net.fabricmc.fabric.api.renderer.v1.mesh.MeshBuilder;
 import net.fabricmc.fabric.api.renderer.v1.mesh.MutableQuadView;
 import net.fabricmc.fabric.api.renderer.v1.mesh.QuadEmitter;
@@ -37,11 +40,14 @@ import net.fabricmc.fabric.api.util.TriState;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.ItemBlockRenderTypes;
 import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.block.model.BakedQuad;
 import net.minecraft.client.renderer.texture.TextureAtlas;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
 import net.minecraft.client.resources.model.BakedModel;
 import net.minecraft.client.resources.model.ModelManager;
+import net.minecraft.client.resources.model.SimpleBakedModel;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.BlockAndTintGetter;
@@ -49,7 +55,10 @@ import net.minecraft.world.level.block.state.BlockState;
 import org.apache.logging.log4j.LogManager;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import static io.github.moremcmeta.emissiveplugin.ModConstants.X_OFFSETS;
@@ -66,8 +75,15 @@ public final class OverlayBakedModel extends ForwardingBakedModel {
     private static final int BLEND_MODES = BlendMode.values().length;
     private static final RenderMaterial[] EMISSIVE_MATERIAL = new RenderMaterial[BLEND_MODES];
     private static final RenderMaterial[] NON_EMISSIVE_MATERIAL = new RenderMaterial[BLEND_MODES];
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final ThreadLocal<OverlayQuadTransform> TRANSFORMS = ThreadLocal.withInitial(
+            OverlayQuadTransform::new
+    );
+    private static RenderMaterial defaultMaterial;
     static {
         if (RendererAccess.INSTANCE.hasRenderer()) {
+            defaultMaterial = RENDERER.materialFinder().find();
+
             for (int modeOrdinal = 0; modeOrdinal < BLEND_MODES; modeOrdinal++) {
                 BlendMode mode = BlendMode.values()[modeOrdinal];
 
@@ -86,6 +102,11 @@ public final class OverlayBakedModel extends ForwardingBakedModel {
         }
     }
     private final ModelManager MODEL_MANAGER = Minecraft.getInstance().getModelManager();
+    private final boolean IS_STATIC;
+    private final Map<BlockState, Optional<Mesh>> BLOCK_MESHES;
+    @Nullable
+    private Mesh itemMesh;
+    private volatile boolean isItemMeshBuilt;
 
     /**
      * Creates a new overlay model.
@@ -93,6 +114,10 @@ public final class OverlayBakedModel extends ForwardingBakedModel {
      */
     public OverlayBakedModel(BakedModel model) {
         wrapped = requireNonNull(model, "Baked model cannot be null");
+
+        // Subclasses may use world data, so only exact simple models are assumed to depend only on the state
+        IS_STATIC = model.getClass() == SimpleBakedModel.class;
+        BLOCK_MESHES = IS_STATIC ? new ConcurrentHashMap<>() : Map.of();
     }
 
     @Override
@@ -103,21 +128,49 @@ public final class OverlayBakedModel extends ForwardingBakedModel {
             return;
         }
 
-        MeshBuilder builder = RENDERER.meshBuilder();
-        OverlayQuadTransform transform = new OverlayQuadTransform(
-                builder.getEmitter(),
-                MODEL_MANAGER.getAtlas(TextureAtlas.LOCATION_BLOCKS),
-                state
-        );
+        /* The overlay mesh for a static model is the same for every position, and the context culls its
+           quads by their cull faces when it is accepted. */
+        if (IS_STATIC) {
+            super.emitBlockQuads(blockView, state, pos, randomSupplier, context);
+
+            boolean isTimed = shouldTimeOverlays();
+            long startTime = isTimed ? System.nanoTime() : 0;
+            Optional<Mesh> mesh = BLOCK_MESHES.get(state);
+            if (mesh == null) {
+                mesh = BLOCK_MESHES.computeIfAbsent(state, this::buildStaticMesh);
+            }
+
+            // The first emission for a state also includes building its mesh
+            mesh.ifPresent(context.meshConsumer());
+            if (isTimed) {
+                recordOverlayWork(mesh.orElse(null), state, System.nanoTime() - startTime);
+            }
+
+            return;
+        }
+
+        OverlayQuadTransform transform = acquireTransform(state);
+        Mesh mesh;
 
         context.pushTransform(transform);
-        super.emitBlockQuads(blockView, state, pos, randomSupplier, context);
-        context.popTransform();
+        try {
+            super.emitBlockQuads(blockView, state, pos, randomSupplier, context);
+        } finally {
+            context.popTransform();
+            mesh = transform.end();
+        }
 
         /* The overlay quads must be emitted after the main mesh has been rendered so that they render over
            other translucent quads. */
-        if (transform.emittedAny()) {
-            context.meshConsumer().accept(builder.build());
+        boolean isTimed = transform.isTimed();
+        long startTime = isTimed ? System.nanoTime() : 0;
+        if (mesh != null) {
+            context.meshConsumer().accept(mesh);
+        }
+
+        // Overlay quads are created while the base quads are emitted, so that work is timed by the transform
+        if (isTimed) {
+            recordOverlayWork(mesh, state, System.nanoTime() - startTime + transform.workNanos());
         }
 
     }
@@ -129,24 +182,127 @@ public final class OverlayBakedModel extends ForwardingBakedModel {
             return;
         }
 
-        MeshBuilder builder = RENDERER.meshBuilder();
-        OverlayQuadTransform transform = new OverlayQuadTransform(
-                builder.getEmitter(),
-                MODEL_MANAGER.getAtlas(TextureAtlas.LOCATION_BLOCKS),
-                null
-        );
+        /* Overrides that depend on the stack are resolved to a different model before this one is rendered,
+           so a static model has the same overlay mesh for every stack. Building the mesh twice on different
+           threads is harmless, since both meshes are identical. */
+        if (IS_STATIC) {
+            super.emitItemQuads(stack, randomSupplier, context);
+
+            // The volatile flag is written after the mesh, so a thread that sees the flag also sees the mesh
+            if (!isItemMeshBuilt) {
+                itemMesh = buildStaticMesh(null).orElse(null);
+                isItemMeshBuilt = true;
+            }
+
+            if (itemMesh != null) {
+                context.meshConsumer().accept(itemMesh);
+            }
+
+            return;
+        }
+
+        OverlayQuadTransform transform = acquireTransform(null);
+        Mesh mesh;
 
         context.pushTransform(transform);
-        super.emitItemQuads(stack, randomSupplier, context);
-        context.popTransform();
+        try {
+            super.emitItemQuads(stack, randomSupplier, context);
+        } finally {
+            context.popTransform();
+            mesh = transform.end();
+        }
 
         /* The overlay quads must be emitted after the main mesh has been rendered so that they render over
            other translucent quads. This also fixes an issue where the original item would be invisible
            when an overlay was rendered. */
-        if (transform.emittedAny()) {
-            context.meshConsumer().accept(builder.build());
+        if (mesh != null) {
+            context.meshConsumer().accept(mesh);
+        }
+
+    }
+
+    /**
+     * Builds the overlay mesh for a static model from all of its quads, including those that may be culled.
+     * @param state     block state to build the mesh for (or null if not a block)
+     * @return overlay mesh or empty if the model has no overlay quads
+     */
+    private Optional<Mesh> buildStaticMesh(@Nullable BlockState state) {
+        OverlayQuadTransform transform = acquireTransform(state);
+        Mesh mesh;
+
+        QuadEmitter source = transform.sourceEmitter();
+
+        try {
+            RandomSource random = RandomSource.create();
+            for (int faceIndex = 0; faceIndex <= DIRECTIONS.length; faceIndex++) {
+                Direction cullFace = faceIndex < DIRECTIONS.length ? DIRECTIONS[faceIndex] : null;
+                for (BakedQuad quad : wrapped.getQuads(state, cullFace, random)) {
+                    source.fromVanilla(quad, defaultMaterial, cullFace);
+                    transform.transform(source);
+                }
+            }
+        } finally {
+            mesh = transform.end();
+        }
+
+        return Optional.ofNullable(mesh);
+    }
+
+    /**
+     * Checks whether overlay work should be timed, either for statistics or for the section's Flight Recorder
+     * event.
+     * @return whether overlay work should be timed
+     */
+    private static boolean shouldTimeOverlays() {
+        return OverlayStatistics.isEnabled() || SectionOverlayEvent.isRecording();
+    }
+
+    /**
+     * Records the overlay quads in a mesh for each chunk layer they render to in the statistics and in the
+     * section's Flight Recorder event.
+     * @param mesh          overlay mesh that was emitted or null if the model had no overlay quads
+     * @param state         block state the mesh was emitted for
+     * @param nanos         nanoseconds spent on overlay work for the mesh
+     */
+    private static void recordOverlayWork(@Nullable Mesh mesh, BlockState state, long nanos) {
+        if (mesh == null) {
+            OverlayStatistics.recordWork(nanos);
+            SectionOverlayEvent.recordBlockQuads(0, nanos);
+            return;
+        }
+
+        RenderType defaultLayer = ItemBlockRenderTypes.getChunkRenderType(state);
+        int[] quadsByLayer = new int[RenderType.chunkBufferLayers().size()];
+        mesh.forEach((quad) -> {
+            RenderType layer = quad.material().blendMode().blockRenderLayer;
+            quadsByLayer[(layer == null ? defaultLayer : layer).getChunkLayerId()]++;
+        });
+
+        List<RenderType> layers = RenderType.chunkBufferLayers();
+        int totalQuads = 0;
+        for (int layerId = 0; layerId < quadsByLayer.length; layerId++) {
+            OverlayStatistics.recordQuads(layers.get(layerId), quadsByLayer[layerId], 0);
+            totalQuads += quadsByLayer[layerId];
+        }
+
+        OverlayStatistics.recordWork(nanos);
+        SectionOverlayEvent.recordBlockQuads(totalQuads, nanos);
+    }
+
+    /**
+     * Gets this thread's overlay transform and prepares it for a new model. If this thread's transform is
+     * already in use, such as when a wrapped model emits another overlay model, a new transform is created.
+     * @param state     block state (or null if not a block)
+     * @return transform ready to receive quads
+     */
+    private OverlayQuadTransform acquireTransform(@Nullable BlockState state) {
+        OverlayQuadTransform transform = TRANSFORMS.get();
+        if (transform.isInUse()) {
+            transform = new OverlayQuadTransform();
         }
 
+        transform.begin(MODEL_MANAGER.getAtlas(TextureAtlas.LOCATION_BLOCKS), state);
+        return transform;
     }
 
     @Override
@@ -158,46 +314,139 @@ public final class OverlayBakedModel extends ForwardingBakedModel {
     }
 
     /**
-     * Emits overlay quads given the original quads.
+     * Emits overlay quads given the original quads. Each transform owns its mesh builders, and all are reused
+     * for every model emitted on the same thread.
      * @author soir20
      */
     private static class OverlayQuadTransform implements RenderContext.QuadTransform {
         private static final int VERTS_PER_QUAD = 4;
+        private final MeshBuilder BUILDER;
         private final QuadEmitter EMITTER;
-        private final TextureAtlas BLOCK_ATLAS;
+        private final QuadEmitter SOURCE_EMITTER;
+        private TextureAtlas blockAtlas;
+        private OverlaySpriteIndex overlayIndex;
+        @Nullable
         private BlockState blockState;
         private boolean isDefaultSolid;
         private boolean emittedAny;
+        private boolean isInUse;
+        private boolean isTimed;
+        private long workNanos;
+
+        /**
+         * Creates a new overlay transform with its own mesh builders.
+         */
+        public OverlayQuadTransform() {
+            BUILDER = RENDERER.meshBuilder();
+            EMITTER = BUILDER.getEmitter();
+            SOURCE_EMITTER = RENDERER.meshBuilder().getEmitter();
+        }
 
         /**
-         * Creates a new overlay transform.
-         * @param emitter       emitter to emit overlay quads to
+         * Prepares this transform to receive the quads of a new model.
          * @param blockAtlas    texture atlas for block textures
          * @param blockState    block state (or null if not a block)
          */
-        public OverlayQuadTransform(QuadEmitter emitter, TextureAtlas blockAtlas, @Nullable BlockState blockState) {
-            EMITTER = emitter;
-            BLOCK_ATLAS = blockAtlas;
+        public void begin(TextureAtlas blockAtlas, @Nullable BlockState blockState) {
+            this.blockAtlas = blockAtlas;
+            overlayIndex = ((SpriteFinderSupplier) blockAtlas).moremcmeta_emissive_overlayIndex();
             this.blockState = blockState;
+            isDefaultSolid = false;
+            emittedAny = false;
+            isInUse = true;
+            isTimed = shouldTimeOverlays();
+            workNanos = 0;
+        }
+
+        /**
+         * Builds a mesh from all emitted overlay quads and releases this transform so that it can be reused.
+         * Building the mesh also clears the builder, so nothing is allocated when no quads were emitted.
+         * @return mesh with the overlay quads or null if no quads were emitted
+         */
+        @Nullable
+        public Mesh end() {
+            isInUse = false;
+            if (!emittedAny) {
+                return null;
+            }
+
+            long startTime = isTimed ? System.nanoTime() : 0;
+            Mesh mesh = BUILDER.build();
+            if (isTimed) {
+                workNanos += System.nanoTime() - startTime;
+            }
+
+            return mesh;
+        }
+
+        /**
+         * Checks whether this transform times its overlay work.
+         * @return whether this transform times its overlay work
+         */
+        public boolean isTimed() {
+            return isTimed;
+        }
+
+        /**
+         * Gets the time spent creating overlay quads and building the mesh since this transform began, if
+         * overlay work is timed.
+         * @return nanoseconds of overlay work or 0 if overlay work is not timed
+         */
+        public long workNanos() {
+            return workNanos;
+        }
+
+        /**
+         * Gets an emitter to load original quads into before they are transformed. Quads are only read from
+         * this emitter, never emitted, so it can be reused for every static mesh built on this thread. It is
+         * separate from the emitter for overlay quads because the original quad is read while its overlay
+         * quad is written.
+         * @return emitter for original quads
+         */
+        public QuadEmitter sourceEmitter() {
+            return SOURCE_EMITTER;
+        }
+
+        /**
+         * Checks whether this transform is currently receiving quads.
+         * @return whether this transform is in use
+         */
+        public boolean isInUse() {
+            return isInUse;
         }
 
         @Override
         public boolean transform(MutableQuadView quad) {
-            TextureAtlasSprite baseSprite = spriteFromQuad(quad);
-            Optional<OverlayMetadata> metadataOptional = MetadataRegistry.INSTANCE
-                    .metadataFromSpriteName(ModConstants.MOD_ID, baseSprite.contents().name())
-                    .map(((metadata) -> (OverlayMetadata) metadata));
+            if (!isTimed) {
+                return emitOverlay(quad);
+            }
+
+            long startTime = System.nanoTime();
+            try {
+                return emitOverlay(quad);
+            } finally {
+                workNanos += System.nanoTime() - startTime;
+            }
+        }
 
-            if (metadataOptional.isEmpty()) {
+        /**
+         * Emits the overlay quad for a quad if its sprite has an overlay.
+         * @param quad      original quad
+         * @return true so that the original quad is always kept
+         */
+        private boolean emitOverlay(MutableQuadView quad) {
+            Optional<ResolvedOverlay> overlayOptional = overlayIndex.find(spriteFromQuad(quad));
+
+            if (overlayOptional.isEmpty()) {
                 return true;
             }
 
             EMITTER.copyFrom(quad);
 
-            OverlayMetadata metadata = metadataOptional.get();
+            ResolvedOverlay overlay = overlayOptional.get();
             BlendMode blendMode;
 
-            if (metadata.transparencyMode() == TransparencyMode.TRANSLUCENT) {
+            if (overlay.transparencyMode() == TransparencyMode.TRANSLUCENT) {
                 blendMode = BlendMode.TRANSLUCENT;
             } else {
                 blendMode = quad.material().blendMode();
@@ -212,10 +461,10 @@ public final class OverlayBakedModel extends ForwardingBakedModel {
                 }
             }
 
-            EMITTER.material((metadata.isEmissive() ? EMISSIVE_MATERIAL : NON_EMISSIVE_MATERIAL)[blendMode.ordinal()]);
+            EMITTER.material((overlay.isEmissive() ? EMISSIVE_MATERIAL : NON_EMISSIVE_MATERIAL)[blendMode.ordinal()]);
 
             int facing = quad.lightFace().ordinal();
-            TextureAtlasSprite overlaySprite = BLOCK_ATLAS.getSprite(metadata.overlaySpriteName());
+            UvRemap uvRemap = overlay.uvRemap();
             for (int vertexIndex = 0; vertexIndex < VERTS_PER_QUAD; vertexIndex++) {
                 float x = EMITTER.x(vertexIndex);
                 float y = EMITTER.y(vertexIndex);
@@ -223,20 +472,8 @@ public final class OverlayBakedModel extends ForwardingBakedModel {
                 EMITTER.pos(vertexIndex, x + X_OFFSETS[facing], y + Y_OFFSETS[facing], z + Z_OFFSETS[facing]);
                 EMITTER.uv(
                         vertexIndex,
-                        OverlayQuadFunction.recomputeSpriteCoordinate(
-                                EMITTER.u(vertexIndex),
-                                baseSprite,
-                                overlaySprite,
-                                TextureAtlasSprite::getU0,
-                                TextureAtlasSprite::getU1
-                        ),
-                        OverlayQuadFunction.recomputeSpriteCoordinate(
-                                EMITTER.v(vertexIndex),
-                                baseSprite,
-                                overlaySprite,
-                                TextureAtlasSprite::getV0,
-                                TextureAtlasSprite::getV1
-                        )
+                        uvRemap.remapU(EMITTER.u(vertexIndex)),
+                        uvRemap.remapV(EMITTER.v(vertexIndex))
                 );
             }
 
@@ -245,21 +482,13 @@ public final class OverlayBakedModel extends ForwardingBakedModel {
             return true;
         }
 
-        /**
-         * Checks if any quads were emitted from this transform.
-         * @return whether any quads were emitted
-         */
-        public boolean emittedAny() {
-            return emittedAny;
-        }
-
         /**
          * Gets the sprite used by a given quad.
          * @param quad      quad to get the sprite of
          * @return quad's sprite
          */
         private TextureAtlasSprite spriteFromQuad(QuadView quad) {
-            return SpriteFinder.get(BLOCK_ATLAS).find(quad);
+            return SpriteFinder.get(blockAtlas).find(quad);
         }
 
     }
@@ -0,0 +1,79 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.fabric.model;
+
+import io.github.moremcmeta.emissiveplugin.OverlayReloadListeners;
+import net.minecraft.client.resources.model.BakedModel;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decides once whether each {@link BakedModel} has overlays and keeps a single {@link OverlayOnlyBakedModel}
+ * for each model that does. Models are classified when they are baked. Models that were not seen during baking,
+ * such as those created by other mods, are assumed to have overlays. They are never stored, since some mods
+ * create a new model each time one is requested.
+ * @author soir20
+ */
+public final class OverlayModelClassifier {
+    private static final Optional<BakedModel> NO_OVERLAY = Optional.empty();
+    private static volatile Map<BakedModel, Optional<BakedModel>> overlayModels = new ConcurrentHashMap<>();
+    private static volatile Map<BakedModel, Optional<BakedModel>> nextOverlayModels = new ConcurrentHashMap<>();
+    static {
+
+        // Models baked during a reload only start being rendered once the block atlas is uploaded
+        OverlayReloadListeners.register(OverlayModelClassifier::applyBakedModels);
+
+    }
+
+    /**
+     * Records whether a newly-baked model has overlays. The result is used once the model is applied.
+     * @param model             model that was baked
+     * @param usesOverlay       whether the model has any overlays
+     */
+    public static void recordBakedModel(BakedModel model, boolean usesOverlay) {
+        requireNonNull(model, "Model cannot be null");
+        nextOverlayModels.put(model, usesOverlay ? Optional.of(new OverlayOnlyBakedModel(model)) : NO_OVERLAY);
+    }
+
+    /**
+     * Gets the model that renders only the overlay quads of the given model.
+     * @param model     model to retrieve the overlay-only model for
+     * @return overlay-only model or empty if the model has no overlays
+     */
+    public static Optional<BakedModel> overlayOnlyModel(BakedModel model) {
+        Optional<BakedModel> overlayModel = overlayModels.get(model);
+        if (overlayModel != null) {
+            return overlayModel;
+        }
+
+        return Optional.of(new OverlayOnlyBakedModel(model));
+    }
+
+    /**
+     * Replaces the classifications for the previous set of models with those for the newly-baked models.
+     */
+    private static void applyBakedModels() {
+        overlayModels = nextOverlayModels;
+        nextOverlayModels = new ConcurrentHashMap<>();
+    }
+
+}
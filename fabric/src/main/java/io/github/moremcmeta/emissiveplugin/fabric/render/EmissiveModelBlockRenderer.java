@@ -19,13 +19,17 @@ package io.github.moremcmeta.emissiveplugin.fabric.render;
 
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexConsumer;
-import io.github.moremcmeta.emissiveplugin.fabric.model.OverlayOnlyBakedModel;
+import io.github.moremcmeta.emissiveplugin.fabric.model.OverlayModelClassifier;
+import io.github.moremcmeta.emissiveplugin.jfr.SectionOverlayEvent;
+import io.github.moremcmeta.emissiveplugin.render.OverlayStatistics;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.client.color.block.BlockColors;
 import net.minecraft.client.renderer.block.ModelBlockRenderer;
 import net.minecraft.client.resources.model.BakedModel;
 import net.minecraft.world.level.block.state.BlockState;
 
+import java.util.Optional;
+
 /**
  * A {@link EmissiveModelBlockRenderer} that can render emissive overlays on blocks.
  * @author soir20
@@ -45,8 +49,21 @@ public final class EmissiveModelBlockRenderer extends ModelBlockRenderer {
     public void renderModel(PoseStack.Pose poseStack, VertexConsumer buffer, BlockState state,
                             BakedModel model, float tintR, float tintG, float tintB, int packedLight, int packedOverlay) {
         super.renderModel(poseStack, buffer, state, model, tintR, tintG, tintB, packedLight, packedOverlay);
-        super.renderModel(poseStack, buffer, state, new OverlayOnlyBakedModel(model), tintR, tintG, tintB, packedLight,
-                packedOverlay);
+
+        // Most models have no overlays, so skip the second pass entirely for them
+        Optional<BakedModel> overlayModel = OverlayModelClassifier.overlayOnlyModel(model);
+        if (overlayModel.isPresent()) {
+            boolean isTimed = OverlayStatistics.isEnabled() || SectionOverlayEvent.isRecording();
+            long startTime = isTimed ? System.nanoTime() : 0;
+            super.renderModel(poseStack, buffer, state, overlayModel.get(), tintR, tintG, tintB, packedLight,
+                    packedOverlay);
+
+            if (isTimed) {
+                long nanos = System.nanoTime() - startTime;
+                OverlayStatistics.recordWork(nanos);
+                SectionOverlayEvent.recordBlockQuads(0, nanos);
+            }
+        }
     }
 
 }
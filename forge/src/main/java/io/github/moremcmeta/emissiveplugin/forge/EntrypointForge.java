@@ -18,9 +18,12 @@
 package io.github.moremcmeta.emissiveplugin.forge;
 
 import io.github.moremcmeta.emissiveplugin.ModConstants;
+import io.github.moremcmeta.emissiveplugin.forge.render.FluidSpriteProviderForge;
+import io.github.moremcmeta.emissiveplugin.render.FluidOverlayClassifier;
 import net.minecraftforge.fml.IExtensionPoint;
 import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.loading.FMLEnvironment;
 
 /**
  * Mod entrypoint on Forge.
@@ -31,7 +34,8 @@ import net.minecraftforge.fml.common.Mod;
 public final class EntrypointForge {
 
     /**
-     * Serves as mod entrypoint on Forge and tells the server to ignore this mod.
+     * Serves as mod entrypoint on Forge, tells the server to ignore this mod, and registers client-only
+     * providers.
      */
     public EntrypointForge() {
 
@@ -44,6 +48,10 @@ public final class EntrypointForge {
                         (remoteVersion, isServer)-> true
                 )
         );
+
+        if (FMLEnvironment.dist.isClient()) {
+            FluidOverlayClassifier.setSpriteProvider(new FluidSpriteProviderForge());
+        }
     }
 
 }
@@ -21,13 +21,16 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.mojang.blaze3d.vertex.PoseStack;
 import io.github.moremcmeta.emissiveplugin.metadata.TransparencyMode;
+import io.github.moremcmeta.emissiveplugin.jfr.SectionOverlayEvent;
 import io.github.moremcmeta.emissiveplugin.model.OverlayQuadFunction;
+import io.github.moremcmeta.emissiveplugin.render.OverlayStatistics;
 import net.minecraft.MethodsReturnNonnullByDefault;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.RenderType;
 import net.minecraft.client.renderer.Sheets;
 import net.minecraft.client.renderer.block.model.BakedQuad;
 import net.minecraft.client.resources.model.BakedModel;
+import net.minecraft.client.resources.model.SimpleBakedModel;
 import net.minecraft.core.Direction;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.item.ItemDisplayContext;
@@ -42,7 +45,10 @@ import org.jetbrains.annotations.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
 
 /**
@@ -67,8 +73,15 @@ public final class OverlayBakedItemModel extends BakedModelWrapper<BakedModel> {
     private static final RenderType SOLID_REPLACEMENT_BLOCK_TYPE = RenderType.cutoutMipped();
     private static final ChunkRenderTypeSet TRANSLUCENT_BLOCK_TYPES_SET = ChunkRenderTypeSet.of(TRANSLUCENT_BLOCK_TYPES);
     private static final ChunkRenderTypeSet SOLID_REPLACEMENT_BLOCK_TYPE_SET = ChunkRenderTypeSet.of(SOLID_REPLACEMENT_BLOCK_TYPE);
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int SIDES = DIRECTIONS.length + 1;
+    private static final int CHUNK_LAYERS = RenderType.chunkBufferLayers().size();
 
     private final OverlayQuadFunction OVERLAY_QUAD_FUNCTION;
+    private final boolean IS_STATIC;
+    private final Map<Integer, AtomicReferenceArray<List<BakedQuad>>> QUADS_BY_LAYER;
+    private final Map<BlockState, AtomicReferenceArray<List<BakedQuad>>> QUADS_BY_STATE;
+    private volatile List<BakedQuad>[] quadsBySide;
 
     /**
      * Creates a new overlay model for items.
@@ -77,70 +90,72 @@ public final class OverlayBakedItemModel extends BakedModelWrapper<BakedModel> {
     public OverlayBakedItemModel(BakedModel originalModel) {
         super(originalModel);
         OVERLAY_QUAD_FUNCTION = new OverlayQuadFunction(OverlayBakedQuadForge::new);
+
+        // Simple models ignore the block state, random source, model data, and render type when retrieving quads
+        IS_STATIC = originalModel.getClass() == SimpleBakedModel.class;
+        QUADS_BY_LAYER = new ConcurrentHashMap<>();
+        QUADS_BY_STATE = new ConcurrentHashMap<>();
     }
 
     @Override
     public List<BakedQuad> getQuads(@Nullable BlockState state, @Nullable Direction side, RandomSource rand) {
-        List<BakedQuad> quads = new ArrayList<>(
-                super.getQuads(state, side, rand)
-        );
-        quads.addAll(OVERLAY_QUAD_FUNCTION.apply(quads));
+        if (IS_STATIC) {
+            return quadsBySide(state, rand)[sideIndex(side)];
+        }
 
-        return quads;
+        return computeQuads(state, side, rand);
     }
 
     @Override
     public BakedModel applyTransform(ItemDisplayContext cameraTransformType, PoseStack poseStack,
                                      boolean applyLeftHandTransform) {
-        return new OverlayBakedItemModel(
-                originalModel.applyTransform(cameraTransformType, poseStack, applyLeftHandTransform)
+        BakedModel transformedModel = originalModel.applyTransform(
+                cameraTransformType,
+                poseStack,
+                applyLeftHandTransform
         );
+
+        // Most models transform the pose stack and return themselves, so the precomputed quads can be reused
+        if (transformedModel == originalModel) {
+            return this;
+        }
+
+        return new OverlayBakedItemModel(transformedModel);
     }
 
     @Override
     @NotNull
     public List<BakedQuad> getQuads(@Nullable BlockState state, @Nullable Direction side, @NotNull RandomSource rand,
                                     @NotNull ModelData extraData, @Nullable RenderType renderType) {
-        List<BakedQuad> baseQuads = super.getQuads(state, side, rand, extraData, renderType);
-        List<BakedQuad> includedQuads = new ArrayList<>();
-
         if (state == null || renderType == null) {
-            includedQuads.addAll(baseQuads);
+            if (IS_STATIC) {
+                return quadsBySide(state, rand)[sideIndex(side)];
+            }
+
+            List<BakedQuad> baseQuads = super.getQuads(state, side, rand, extraData, renderType);
+            List<BakedQuad> includedQuads = new ArrayList<>(baseQuads);
             includedQuads.addAll(OVERLAY_QUAD_FUNCTION.apply(baseQuads));
             return includedQuads;
         }
 
-        ChunkRenderTypeSet types = super.getRenderTypes(state, rand, extraData);
-
-        if (types.contains(renderType)) {
-            includedQuads.addAll(baseQuads);
-        }
-
-        if (TRANSLUCENT_BLOCK_TYPES_SET.contains(renderType)) {
-            types.forEach((type) -> {
-                List<BakedQuad> typeBaseQuads = super.getQuads(state, side, rand, extraData, type);
+        if ((OverlayStatistics.isEnabled() || SectionOverlayEvent.isRecording()) && isBlockType(renderType)) {
+            long startTime = System.nanoTime();
+            List<BakedQuad> quads = getBlockQuads(state, side, rand, extraData, renderType);
+            long nanos = System.nanoTime() - startTime;
 
-                // Each model should have exactly one translucent type, so no duplicates will be added
-                if (TRANSLUCENT_BLOCK_TYPES_SET.contains(type)) {
-                    includedQuads.addAll(OVERLAY_QUAD_FUNCTION.apply(typeBaseQuads));
-                } else {
-                    addAllWithMode(typeBaseQuads, TransparencyMode.TRANSLUCENT, includedQuads);
+            int overlayQuads = 0;
+            for (BakedQuad quad : quads) {
+                if (quad instanceof OverlayBakedQuadForge) {
+                    overlayQuads++;
                 }
-
-            });
-        } else if (!renderType.equals(SOLID_BLOCK_TYPE)) {
-            addAllWithMode(includedQuads, TransparencyMode.AUTO, includedQuads);
-
-            if (types.contains(SOLID_BLOCK_TYPE) && renderType.equals(SOLID_REPLACEMENT_BLOCK_TYPE)) {
-                addAllWithMode(
-                        super.getQuads(state, side, rand, extraData, SOLID_BLOCK_TYPE),
-                        TransparencyMode.AUTO,
-                        includedQuads
-                );
             }
+
+            OverlayStatistics.recordQuads(renderType, overlayQuads, nanos);
+            SectionOverlayEvent.recordBlockQuads(overlayQuads, nanos);
+            return quads;
         }
 
-        return includedQuads;
+        return getBlockQuads(state, side, rand, extraData, renderType);
     }
 
     @Override
@@ -170,10 +185,144 @@ public final class OverlayBakedItemModel extends BakedModelWrapper<BakedModel> {
     @Override
     public List<BakedModel> getRenderPasses(ItemStack itemStack, boolean fabulous) {
         return originalModel.getRenderPasses(itemStack, fabulous).stream().map(
-                (model) -> (BakedModel) new OverlayBakedItemModel(model)
+                (model) -> model == originalModel ? this : (BakedModel) new OverlayBakedItemModel(model)
         ).toList();
     }
 
+    /**
+     * Gets the base and overlay quads for a side that should be rendered with a render type.
+     * @param state         block state of the model
+     * @param side          side to retrieve quads for or null for quads without a side
+     * @param rand          source of random numbers for the model
+     * @param extraData     extra model data
+     * @param renderType    render type being rendered
+     * @return base and overlay quads for the side and render type
+     */
+    private List<BakedQuad> getBlockQuads(BlockState state, @Nullable Direction side, RandomSource rand,
+                                          ModelData extraData, RenderType renderType) {
+        if (IS_STATIC && isBlockType(renderType)) {
+
+            // Simple models' render types only depend on the block state, so the original types are only retrieved once
+            AtomicReferenceArray<List<BakedQuad>> quadsByLayer = QUADS_BY_STATE.computeIfAbsent(
+                    state,
+                    (key) -> quadsByLayer(super.getRenderTypes(key, rand, extraData))
+            );
+
+            // Only the requested side and layer are computed; computing them twice on different threads is harmless
+            int index = sideIndex(side) * CHUNK_LAYERS + renderType.getChunkLayerId();
+            List<BakedQuad> quads = quadsByLayer.get(index);
+            if (quads == null) {
+                ChunkRenderTypeSet types = super.getRenderTypes(state, rand, extraData);
+                quads = ImmutableList.copyOf(computeQuads(state, side, rand, extraData, renderType, types));
+                quadsByLayer.set(index, quads);
+            }
+
+            return quads;
+        }
+
+        ChunkRenderTypeSet types = super.getRenderTypes(state, rand, extraData);
+        return computeQuads(state, side, rand, extraData, renderType, types);
+    }
+
+    /**
+     * Gets the table of precomputed quads shared by all block states with the same original render types.
+     * @param types     render types of the original model for a block state
+     * @return quads indexed by side and chunk layer
+     */
+    private AtomicReferenceArray<List<BakedQuad>> quadsByLayer(ChunkRenderTypeSet types) {
+
+        // Sets may be recreated on every call, so key the table by the layers in the set instead
+        return QUADS_BY_LAYER.computeIfAbsent(
+                layerMask(types),
+                (mask) -> new AtomicReferenceArray<>(SIDES * CHUNK_LAYERS)
+        );
+    }
+
+    /**
+     * Computes the base and overlay quads for a side when no render type is specified.
+     * @param state     block state of the model or null if the model is an item
+     * @param side      side to retrieve quads for or null for quads without a side
+     * @param rand      source of random numbers for the model
+     * @return base and overlay quads for the side
+     */
+    private List<BakedQuad> computeQuads(@Nullable BlockState state, @Nullable Direction side, RandomSource rand) {
+        List<BakedQuad> quads = new ArrayList<>(
+                super.getQuads(state, side, rand)
+        );
+        quads.addAll(OVERLAY_QUAD_FUNCTION.apply(quads));
+
+        return quads;
+    }
+
+    /**
+     * Gets the precomputed base and overlay quads for every side of a static model when no render type is
+     * specified, computing them on first use.
+     * @param state     block state of the model or null if the model is an item
+     * @param rand      source of random numbers for the model
+     * @return immutable quads indexed by {@link #sideIndex(Direction)}
+     */
+    private List<BakedQuad>[] quadsBySide(@Nullable BlockState state, RandomSource rand) {
+        List<BakedQuad>[] quads = quadsBySide;
+
+        // Computing the same quads more than once on different threads is harmless
+        if (quads == null) {
+            quads = newQuadTable(SIDES);
+            for (int sideIndex = 0; sideIndex < SIDES; sideIndex++) {
+                quads[sideIndex] = ImmutableList.copyOf(computeQuads(state, side(sideIndex), rand));
+            }
+
+            quadsBySide = quads;
+        }
+
+        return quads;
+    }
+
+    /**
+     * Computes the base and overlay quads for a side that should be rendered with a chunk render type.
+     * @param state         block state of the model
+     * @param side          side to retrieve quads for or null for quads without a side
+     * @param rand          source of random numbers for the model
+     * @param extraData     extra model data
+     * @param renderType    render type being rendered
+     * @param types         render types of the original model for this block state
+     * @return base and overlay quads for the side and render type
+     */
+    private List<BakedQuad> computeQuads(BlockState state, @Nullable Direction side, RandomSource rand,
+                                         ModelData extraData, RenderType renderType, ChunkRenderTypeSet types) {
+        List<BakedQuad> baseQuads = super.getQuads(state, side, rand, extraData, renderType);
+        List<BakedQuad> includedQuads = new ArrayList<>();
+
+        if (types.contains(renderType)) {
+            includedQuads.addAll(baseQuads);
+        }
+
+        if (TRANSLUCENT_BLOCK_TYPES_SET.contains(renderType)) {
+            types.forEach((type) -> {
+                List<BakedQuad> typeBaseQuads = super.getQuads(state, side, rand, extraData, type);
+
+                // Each model should have exactly one translucent type, so no duplicates will be added
+                if (TRANSLUCENT_BLOCK_TYPES_SET.contains(type)) {
+                    includedQuads.addAll(OVERLAY_QUAD_FUNCTION.apply(typeBaseQuads));
+                } else {
+                    addAllWithMode(typeBaseQuads, TransparencyMode.TRANSLUCENT, includedQuads);
+                }
+
+            });
+        } else if (!renderType.equals(SOLID_BLOCK_TYPE)) {
+            addAllWithMode(includedQuads, TransparencyMode.AUTO, includedQuads);
+
+            if (types.contains(SOLID_BLOCK_TYPE) && renderType.equals(SOLID_REPLACEMENT_BLOCK_TYPE)) {
+                addAllWithMode(
+                        super.getQuads(state, side, rand, extraData, SOLID_BLOCK_TYPE),
+                        TransparencyMode.AUTO,
+                        includedQuads
+                );
+            }
+        }
+
+        return includedQuads;
+    }
+
     /**
      * Computes overlay quads and adds those that have the given transparency mode to the results list.
      * @param quads             base quads
@@ -195,4 +344,48 @@ public final class OverlayBakedItemModel extends BakedModelWrapper<BakedModel> {
         return type.getChunkLayerId() >= 0;
     }
 
+    /**
+     * Gets a bitmask of the chunk layers in a set of render types. Sets with the same layers have the same mask
+     * even if they are different instances.
+     * @param types     set of render types
+     * @return bitmask with a bit set for the ID of each chunk layer in the set
+     */
+    private static int layerMask(ChunkRenderTypeSet types) {
+        int mask = 0;
+        for (RenderType type : types) {
+            mask |= 1 << type.getChunkLayerId();
+        }
+
+        return mask;
+    }
+
+    /**
+     * Gets the index of a side in the precomputed quad tables.
+     * @param side      side to get the index of or null for quads without a side
+     * @return index of the side
+     */
+    private static int sideIndex(@Nullable Direction side) {
+        return side == null ? DIRECTIONS.length : side.ordinal();
+    }
+
+    /**
+     * Gets the side corresponding to an index in the precomputed quad tables.
+     * @param sideIndex     index of the side
+     * @return side or null for quads without a side
+     */
+    @Nullable
+    private static Direction side(int sideIndex) {
+        return sideIndex == DIRECTIONS.length ? null : DIRECTIONS[sideIndex];
+    }
+
+    /**
+     * Creates an empty table of quad lists.
+     * @param size      number of entries in the table
+     * @return empty table
+     */
+    @SuppressWarnings("unchecked")
+    private static List<BakedQuad>[] newQuadTable(int size) {
+        return (List<BakedQuad>[]) new List[size];
+    }
+
 }
@@ -0,0 +1,57 @@
+/*
+ * MoreMcmeta is a Minecraft mod expanding texture configuration capabilities.
+ * Copyright (C) 2023 soir20
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.moremcmeta.emissiveplugin.forge.render;
+
+import io.github.moremcmeta.emissiveplugin.render.FluidSpriteProvider;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.material.Fluid;
+import net.minecraftforge.client.extensions.common.IClientFluidTypeExtensions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Finds fluid sprites from Forge's client fluid type extensions, which Forge also uses for vanilla fluids.
+ * @author soir20
+ */
+public final class FluidSpriteProviderForge implements FluidSpriteProvider {
+    @Override
+    public Optional<Collection<ResourceLocation>> spriteNames(Fluid fluid) {
+        IClientFluidTypeExtensions extensions = IClientFluidTypeExtensions.of(fluid);
+        ResourceLocation stillTexture = extensions.getStillTexture();
+        ResourceLocation flowingTexture = extensions.getFlowingTexture();
+
+        // Extensions without textures independent of position can only provide them during rendering
+        if (stillTexture == null || flowingTexture == null) {
+            return Optional.empty();
+        }
+
+        List<ResourceLocation> spriteNames = new ArrayList<>();
+        spriteNames.add(stillTexture);
+        spriteNames.add(flowingTexture);
+
+        ResourceLocation overlayTexture = extensions.getOverlayTexture();
+        if (overlayTexture != null) {
+            spriteNames.add(overlayTexture);
+        }
+
+        return Optional.of(spriteNames);
+    }
+}